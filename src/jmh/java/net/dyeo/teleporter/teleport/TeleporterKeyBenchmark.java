@@ -0,0 +1,92 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.concurrent.TimeUnit;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * TeleporterKeyBenchmark measures comparing a source's key with a destination's, for plain keys, keys with nbt tags
+ * and written books, which are compared by author and title. each kind is compared with an equal copy of itself, as
+ * happens for every destination on the source's channel, and with a key that differs only in its tag or metadata, as
+ * happens for the pads on other channels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TeleporterKeyBenchmark
+{
+
+	@Param({ "plain", "nbt", "written_book" })
+	public String kind;
+
+	private ItemStack sourceKey;
+	private ItemStack matchingKey;
+	private ItemStack otherKey;
+
+
+	@Setup
+	public void setUp()
+	{
+		Bootstrap.register();
+
+		this.sourceKey = createKey(this.kind, 0);
+		this.matchingKey = createKey(this.kind, 0);
+		this.otherKey = createKey(this.kind, 1);
+	}
+
+	private static ItemStack createKey(String kind, int variant)
+	{
+		if ("plain".equals(kind))
+		{
+			return new ItemStack(Items.DYE, 1, variant);
+		}
+		else if ("nbt".equals(kind))
+		{
+			ItemStack key = new ItemStack(Items.PAPER);
+			NBTTagCompound compound = new NBTTagCompound();
+			compound.setInteger("channel", variant);
+			compound.setString("display", "Teleporter key");
+			key.setTagCompound(compound);
+			return key;
+		}
+		else
+		{
+			ItemStack key = new ItemStack(Items.WRITTEN_BOOK);
+			NBTTagCompound compound = new NBTTagCompound();
+			compound.setString("author", "Builder");
+			compound.setString("title", "Destination " + variant);
+			NBTTagList pages = new NBTTagList();
+			pages.appendTag(new NBTTagString("{\"text\":\"page one\"}"));
+			pages.appendTag(new NBTTagString("{\"text\":\"page two\"}"));
+			compound.setTag("pages", pages);
+			key.setTagCompound(compound);
+			return key;
+		}
+	}
+
+
+	@Benchmark
+	public boolean matching()
+	{
+		return TeleporterNetwork.doKeyStacksMatch(this.sourceKey, this.matchingKey);
+	}
+
+	@Benchmark
+	public boolean notMatching()
+	{
+		return TeleporterNetwork.doKeyStacksMatch(this.sourceKey, this.otherKey);
+	}
+
+}
@@ -0,0 +1,78 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * TeleporterNetworkBenchmark measures node lookups and destination walks over synthetic networks of 10 to 100k pads,
+ * with their keys spread over a number of channels. more channels means fewer pads share a source's key, so walks pass
+ * over more pads before they find a destination.
+ *
+ * the pads are spread over three loaded stand-in dimensions, and each call moves on to the next pad in a fixed shuffle
+ * so every pad is used as a source in turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TeleporterNetworkBenchmark
+{
+
+	private static final int CATEGORY = TeleporterEntityFilter.CATEGORIES.indexOf("creature");
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int nodes;
+
+	@Param({ "1", "16", "256" })
+	public int channels;
+
+	private SyntheticNetwork synthetic;
+	private int[] order;
+	private int next = 0;
+
+
+	@Setup
+	public void setUp()
+	{
+		this.synthetic = new SyntheticNetwork(this.nodes, 3, this.channels, 1L);
+
+		// a fixed shuffle, so lookups don't walk the node index in the order it was built
+		this.order = new int[this.nodes];
+		for (int i = 0; i < this.nodes; ++i)
+		{
+			this.order[i] = (int)((i * 2654435761L) % this.nodes);
+		}
+	}
+
+	private int nextIndex()
+	{
+		int index = this.order[this.next];
+		this.next = (this.next + 1 == this.order.length ? 0 : this.next + 1);
+		return index;
+	}
+
+
+	@Benchmark
+	public TeleporterNode getNode()
+	{
+		TeleporterNode node = this.synthetic.nodes.get(this.nextIndex());
+		return this.synthetic.network.getNode(node.pos, node.dimension);
+	}
+
+	/**
+	 * the walk getNextNode makes once it has the source's key and the entity's category
+	 */
+	@Benchmark
+	public TeleporterNode getNextNode()
+	{
+		int index = this.nextIndex();
+		return this.synthetic.network.findDestination(this.synthetic.nodes.get(index), this.synthetic.getKey(index), CATEGORY, null);
+	}
+
+}
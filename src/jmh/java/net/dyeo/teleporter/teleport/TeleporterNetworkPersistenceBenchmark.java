@@ -0,0 +1,58 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.concurrent.TimeUnit;
+import net.minecraft.nbt.NBTTagCompound;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * TeleporterNetworkPersistenceBenchmark measures saving synthetic networks of 10 to 100k pads to nbt and loading them
+ * back, which rebuilds the node index, the owner partitions and the first snapshot. keys aren't saved with the network,
+ * so the channel count only changes how the pads are spread over the stand-in worlds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TeleporterNetworkPersistenceBenchmark
+{
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int nodes;
+
+	@Param({ "1", "16", "256" })
+	public int channels;
+
+	private SyntheticNetwork synthetic;
+	private NBTTagCompound saved;
+	private TeleporterNetwork loaded;
+
+
+	@Setup
+	public void setUp()
+	{
+		this.synthetic = new SyntheticNetwork(this.nodes, 3, this.channels, 1L);
+		this.saved = this.synthetic.network.writeToNBT(new NBTTagCompound());
+		this.loaded = new TeleporterNetwork();
+	}
+
+
+	@Benchmark
+	public NBTTagCompound writeToNBT()
+	{
+		return this.synthetic.network.writeToNBT(new NBTTagCompound());
+	}
+
+	@Benchmark
+	public TeleporterNetwork readFromNBT()
+	{
+		this.loaded.readFromNBT(this.saved);
+		return this.loaded;
+	}
+
+}
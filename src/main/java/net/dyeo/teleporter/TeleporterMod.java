@@ -3,10 +3,27 @@ package net.dyeo.teleporter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import net.dyeo.teleporter.command.CommandTeleportReset;
+import net.dyeo.teleporter.command.CommandTeleporter;
 import net.dyeo.teleporter.common.config.ModConfiguration;
 import net.dyeo.teleporter.event.TeleportEventHandler;
+import net.dyeo.teleporter.metrics.TeleporterMetrics;
+import net.dyeo.teleporter.metrics.TeleporterProfiler;
+import net.dyeo.teleporter.metrics.TeleporterStressScenario;
+import net.dyeo.teleporter.metrics.TeleporterTrace;
 import net.dyeo.teleporter.proxy.CommonProxy;
+import net.dyeo.teleporter.teleport.TeleporterDestinationDirectory;
+import net.dyeo.teleporter.teleport.TeleporterDimensionLoader;
+import net.dyeo.teleporter.teleport.TeleporterDimensionPolicy;
+import net.dyeo.teleporter.teleport.TeleporterEffects;
+import net.dyeo.teleporter.teleport.TeleporterNetwork;
+import net.dyeo.teleporter.teleport.TeleporterNetworkReplicator;
+import net.dyeo.teleporter.teleport.TeleporterNetworkScanner;
+import net.dyeo.teleporter.teleport.TeleporterResolver;
+import net.dyeo.teleporter.teleport.TeleporterTransit;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.ForgeChunkManager;
 import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.Mod.EventHandler;
 import net.minecraftforge.fml.common.Mod.Instance;
@@ -14,7 +31,9 @@ import net.minecraftforge.fml.common.SidedProxy;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartedEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppedEvent;
 
 
 @Mod(modid = TeleporterMod.MODID, name = TeleporterMod.NAME, version = TeleporterMod.VERSION, updateJSON = TeleporterMod.UPDATEJSON, dependencies = "required-after:forge@[14.21.0.2363,);")
@@ -51,6 +70,18 @@ public class TeleporterMod
 	{
 		proxy.init();
 		MinecraftForge.EVENT_BUS.register(new TeleportEventHandler());
+		MinecraftForge.EVENT_BUS.register(new TeleporterEffects());
+		MinecraftForge.EVENT_BUS.register(new TeleporterNetwork.EventHandler());
+		MinecraftForge.EVENT_BUS.register(new TeleporterResolver());
+		MinecraftForge.EVENT_BUS.register(new TeleporterTransit());
+		MinecraftForge.EVENT_BUS.register(new TeleporterNetworkReplicator());
+
+		TeleporterDimensionLoader dimensionLoader = new TeleporterDimensionLoader();
+		MinecraftForge.EVENT_BUS.register(dimensionLoader);
+		ForgeChunkManager.setForcedChunkLoadingCallback(instance, dimensionLoader);
+
+		MinecraftForge.EVENT_BUS.register(TeleporterMetrics.INSTANCE);
+		TeleporterMetrics.register();
 	}
 
 	@EventHandler
@@ -63,6 +94,32 @@ public class TeleporterMod
 	public void serverStarting(FMLServerStartingEvent event)
 	{
 		event.registerServerCommand(new CommandTeleportReset());
+		event.registerServerCommand(new CommandTeleporter());
+		TeleporterDimensionPolicy.rebuild(DimensionManager.getStaticDimensionIDs());
+		TeleporterTrace.start(event.getServer().getFile(""));
+	}
+
+	@EventHandler
+	public void serverStarted(FMLServerStartedEvent event)
+	{
+		if (ModConfiguration.checkNetworkOnStart)
+		{
+			TeleporterNetworkScanner.start(FMLCommonHandler.instance().getMinecraftServerInstance(), null);
+		}
+		TeleporterStressScenario.startFromSystemProperty(FMLCommonHandler.instance().getMinecraftServerInstance());
+	}
+
+	@EventHandler
+	public void serverStopped(FMLServerStoppedEvent event)
+	{
+		TeleporterResolver.clear();
+		TeleporterDimensionLoader.clear();
+		TeleporterProfiler.clear();
+		TeleporterNetworkReplicator.clear();
+		TeleporterDestinationDirectory.clear();
+		TeleporterNetworkScanner.clear();
+		TeleporterTransit.clear();
+		TeleporterTrace.stop();
 	}
 
 }
@@ -1,5 +1,6 @@
 package net.dyeo.teleporter.block;
 
+import java.util.UUID;
 import javax.annotation.Nullable;
 import net.dyeo.teleporter.TeleporterMod;
 import net.dyeo.teleporter.capabilities.CapabilityTeleportHandler;
@@ -7,7 +8,11 @@ import net.dyeo.teleporter.capabilities.EnumTeleportStatus;
 import net.dyeo.teleporter.capabilities.ITeleportHandler;
 import net.dyeo.teleporter.common.config.ModConfiguration;
 import net.dyeo.teleporter.common.network.GuiHandler;
+import net.dyeo.teleporter.metrics.TeleporterMetrics;
+import net.dyeo.teleporter.metrics.TeleporterProfiler;
+import net.dyeo.teleporter.teleport.TeleporterEntityFilter;
 import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.dyeo.teleporter.teleport.TeleporterResolver;
 import net.dyeo.teleporter.teleport.TeleporterUtility;
 import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
 import net.minecraft.block.Block;
@@ -20,9 +25,6 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.creativetab.CreativeTabs;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityLivingBase;
-import net.minecraft.entity.monster.EntityMob;
-import net.minecraft.entity.passive.EntityAnimal;
-import net.minecraft.entity.passive.EntityWolf;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.InventoryHelper;
 import net.minecraft.item.Item;
@@ -37,6 +39,7 @@ import net.minecraft.util.IStringSerializable;
 import net.minecraft.util.NonNullList;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.RayTraceResult;
 import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.world.IBlockAccess;
@@ -72,6 +75,29 @@ public class BlockTeleporter extends BlockContainer
 		{
 			player.openGui(TeleporterMod.instance, GuiHandler.GUI_ID_TELEPORTER, world, pos.getX(), pos.getY(), pos.getZ());
 		}
+		else if (!world.isRemote && player.getHeldItem(hand).isEmpty())
+		{
+			// sneaking with an empty hand switches the teleporter between moving single entities and moving everything around it
+			TileEntity tileentity = world.getTileEntity(pos);
+			if (tileentity instanceof TileEntityTeleporter)
+			{
+				TileEntityTeleporter tileEntityTeleporter = (TileEntityTeleporter)tileentity;
+
+				// only the owner of a private teleporter, or an operator, can switch it
+				UUID owner = tileEntityTeleporter.getOwner();
+				if (owner != null && !owner.equals(player.getUniqueID()) && !player.canUseCommand(2, ""))
+				{
+					player.sendMessage(new TextComponentTranslation("message." + TeleporterMod.MODID + '_' + this.getClass().getSimpleName() + ".teleporterAreaDenied"));
+					return true;
+				}
+
+				tileEntityTeleporter.setAreaMode(!tileEntityTeleporter.isAreaMode());
+				tileEntityTeleporter.markDirty();
+
+				String translationKey = "message." + TeleporterMod.MODID + '_' + this.getClass().getSimpleName() + '.' + (tileEntityTeleporter.isAreaMode() ? "teleporterAreaEnabled" : "teleporterAreaDisabled");
+				player.sendMessage(new TextComponentTranslation(translationKey));
+			}
+		}
 		return true;
 	}
 
@@ -80,50 +106,81 @@ public class BlockTeleporter extends BlockContainer
 	{
 		super.onBlockPlacedBy(worldIn, pos, state, placer, stack);
 
-		if (stack.hasDisplayName())
+		TileEntity tileentity = worldIn.getTileEntity(pos);
+		if (tileentity instanceof TileEntityTeleporter)
 		{
-			TileEntity tileentity = worldIn.getTileEntity(pos);
-			if (tileentity instanceof TileEntityTeleporter)
+			if (stack.hasDisplayName())
 			{
 				((TileEntityTeleporter)tileentity).setCustomName(stack.getDisplayName());
 			}
+
+			// teleporters placed by players join their owner's private network
+			if (!worldIn.isRemote && ModConfiguration.privateTeleporters && placer instanceof EntityPlayer)
+			{
+				((TileEntityTeleporter)tileentity).setOwner(placer.getUniqueID());
+			}
 		}
 	}
 
     @Override
 	public void onEntityWalk(World world, BlockPos pos, Entity entity)
     {
-		if (entity instanceof EntityLivingBase && entity.hasCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null))
+		ITeleportHandler handler = (entity instanceof EntityLivingBase ? entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null) : null);
+		if (handler != null)
 		{
-			ITeleportHandler handler = entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
 			if (!world.isRemote)
 			{
+				world.profiler.startSection("teleporter");
+				long sampleStart = TeleporterProfiler.startSample(world.provider.getDimension(), pos);
+
 				if (handler.getTeleportStatus() == EnumTeleportStatus.INACTIVE)
 				{
-					handler.setOnTeleporter(entity.getPosition().distanceSq(pos) <= 1);
+					// same test as entity.getPosition().distanceSq(pos), without allocating a position
+					handler.setOnTeleporter(pos.distanceSq(MathHelper.floor(entity.posX), MathHelper.floor(entity.posY + 0.5D), MathHelper.floor(entity.posZ)) <= 1);
 					handler.setDimension(entity.dimension);
 
 					if (handler.getOnTeleporter())
 					{
-						boolean isHostile = (entity instanceof EntityMob) || (entity instanceof EntityWolf && ((EntityWolf)entity).isAngry());
-						boolean isPassive = (entity instanceof EntityAnimal);
-
-						if ((isHostile == false || isHostile == ModConfiguration.teleportHostileMobs) && (isPassive == false || isPassive == ModConfiguration.teleportPassiveMobs))
+						TileEntity tileentity = world.getTileEntity(pos);
+						if (tileentity instanceof TileEntityTeleporter && ((TileEntityTeleporter)tileentity).isAreaMode())
+						{
+							// area teleporters move everything around them at once, and only players set them off
+							if (entity instanceof EntityPlayer)
+							{
+								TeleporterUtility.teleportArea(world, pos, entity);
+							}
+						}
+						else if (TeleporterEntityFilter.isEligible(entity))
 						{
-							TeleporterNode destinationNode = TeleporterUtility.teleport((EntityLivingBase)entity, pos);
+							if (ModConfiguration.asyncResolution)
+							{
+								TeleporterResolver.request((EntityLivingBase)entity, pos);
+							}
+							else
+							{
+								TeleporterNode destinationNode = TeleporterUtility.teleport((EntityLivingBase)entity, pos);
+							}
+						}
+						else
+						{
+							TeleporterMetrics.recordFiltered();
 						}
 					}
 				}
+
+				TeleporterProfiler.record(world.provider.getDimension(), pos, sampleStart);
+				world.profiler.endSection();
 			}
 
-			if (handler.getTeleportStatus() == EnumTeleportStatus.INACTIVE)
+			// particles are only visible client side, so don't spend server time on them
+			if (world.isRemote && handler.getTeleportStatus() == EnumTeleportStatus.INACTIVE)
 			{
 				double width = 0.25;
 				double height = 0.25;
 
-				double mx = world.rand.nextGaussian() * 0.2d;
-				double my = world.rand.nextGaussian() * 0.2d;
-				double mz = world.rand.nextGaussian() * 0.2d;
+				double mx = (world.rand.nextDouble() - 0.5d) * 0.4d;
+				double my = (world.rand.nextDouble() - 0.5d) * 0.4d;
+				double mz = (world.rand.nextDouble() - 0.5d) * 0.4d;
 
 				world.spawnParticle(EnumParticleTypes.PORTAL,
 					pos.getX() + 0.5 + world.rand.nextFloat() * width * 2.0F - width,
@@ -157,6 +214,12 @@ public class BlockTeleporter extends BlockContainer
 
 				if (isNowPowered != isAlreadyPowered)
 				{
+					// a redstone pulse sets off an area teleporter
+					if (isNowPowered && tileentity.isAreaMode())
+					{
+						TeleporterUtility.teleportArea(world, pos, null);
+					}
+
 					// there is no way in forge to determine who activated/deactivated the teleporter, so we simply get the closest player
 					// works for _most_ cases
 					EntityPlayer player = world.getClosestPlayer(pos.getX(), pos.getY(), pos.getZ(), 16, false);
@@ -1,6 +1,7 @@
 package net.dyeo.teleporter.capabilities;
 
 import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.teleport.TeleporterTransit;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityLivingBase;
 import net.minecraft.nbt.NBTBase;
@@ -88,7 +89,7 @@ public class CapabilityTeleportHandler
 		@SubscribeEvent
 		public void onAttachCapability(final AttachCapabilitiesEvent<Entity> event)
 		{
-			if (event.getObject() instanceof EntityLivingBase)
+			if (event.getObject() instanceof EntityLivingBase || TeleporterTransit.isTransitEntity(event.getObject()))
 			{
 				event.addCapability(new ResourceLocation(TeleporterMod.MODID, "entity"), new CapabilityTeleportHandler.Provider());
 			}
@@ -5,5 +5,6 @@ public enum EnumTeleportStatus
 	INACTIVE,
 	IN_PROGRESS,
 	SUCCEEDED,
-	FAILED
+	FAILED,
+	RESOLVING
 }
@@ -0,0 +1,106 @@
+package net.dyeo.teleporter.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.dyeo.teleporter.common.network.MessageNetworkSync;
+import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * TeleporterNetworkMirror is the client's copy of the teleporters its player can see, kept up to date by the server,
+ * so that map and gui integrations can list teleporters without asking the server. only used on the client thread.
+ *
+ */
+@SideOnly(Side.CLIENT)
+public class TeleporterNetworkMirror
+{
+
+	private static final Map<Integer, Map<BlockPos, TeleporterNode>> nodes = new HashMap<Integer, Map<BlockPos, TeleporterNode>>();
+
+	// -1 until the first full copy arrives, and again while waiting for a new one
+	private static long generation = -1L;
+
+
+	/**
+	 * applies a message from the server. returns false if the message was for a different generation than the mirror is
+	 * at, so a full copy of the network should be requested. messages are then ignored until the full copy arrives
+	 */
+	public static boolean apply(MessageNetworkSync message)
+	{
+		if (message.isFull())
+		{
+			nodes.clear();
+		}
+		else if (message.getBaseGeneration() != generation)
+		{
+			boolean isWaiting = (generation < 0);
+			generation = -1L;
+			return isWaiting;
+		}
+
+		for (MessageNetworkSync.Entry entry : message.getEntries())
+		{
+			TeleporterNode node = entry.node;
+			Map<BlockPos, TeleporterNode> dimensionNodes = nodes.get(node.dimension);
+
+			if (entry.operation == MessageNetworkSync.REMOVE)
+			{
+				if (dimensionNodes != null)
+				{
+					dimensionNodes.remove(node.pos);
+					if (dimensionNodes.isEmpty()) nodes.remove(node.dimension);
+				}
+			}
+			else
+			{
+				if (dimensionNodes == null)
+				{
+					dimensionNodes = new HashMap<BlockPos, TeleporterNode>();
+					nodes.put(node.dimension, dimensionNodes);
+				}
+				dimensionNodes.put(node.pos, node);
+			}
+		}
+
+		generation = message.getGeneration();
+		return true;
+	}
+
+	public static void clear()
+	{
+		nodes.clear();
+		generation = -1L;
+	}
+
+
+	/**
+	 * the generation of the server's network the mirror is at, or -1 if it hasn't been synced
+	 */
+	public static long getGeneration()
+	{
+		return generation;
+	}
+
+	public static Collection<TeleporterNode> getNodes(int dimension)
+	{
+		Map<BlockPos, TeleporterNode> dimensionNodes = nodes.get(dimension);
+		return dimensionNodes != null ? Collections.unmodifiableCollection(dimensionNodes.values()) : Collections.<TeleporterNode>emptyList();
+	}
+
+	public static List<TeleporterNode> getNodes()
+	{
+		List<TeleporterNode> allNodes = new ArrayList<TeleporterNode>();
+		for (Map<BlockPos, TeleporterNode> dimensionNodes : nodes.values())
+		{
+			allNodes.addAll(dimensionNodes.values());
+		}
+		return allNodes;
+	}
+
+}
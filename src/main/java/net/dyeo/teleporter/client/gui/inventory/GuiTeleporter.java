@@ -1,12 +1,23 @@
 package net.dyeo.teleporter.client.gui.inventory;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.common.network.MessageDestinationPage;
+import net.dyeo.teleporter.common.network.MessageDestinationRequest;
+import net.dyeo.teleporter.common.network.PacketHandler;
 import net.dyeo.teleporter.inventory.ContainerTeleporter;
 import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
+import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.GuiButton;
 import net.minecraft.client.gui.inventory.GuiContainer;
 import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.resources.I18n;
 import net.minecraft.entity.player.InventoryPlayer;
+import net.minecraft.item.ItemStack;
 import net.minecraft.util.ResourceLocation;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
@@ -18,9 +29,30 @@ public class GuiTeleporter extends GuiContainer
 
 	private static final ResourceLocation TELEPORTER_GUI_TEXTURE = new ResourceLocation(TeleporterMod.MODID, "textures/gui/container/teleporter.png");
 
+	private static final int PANEL_GAP = 4;
+	private static final int PANEL_WIDTH = 132;
+	private static final int ENTRY_TOP = 18;
+	private static final int ENTRY_HEIGHT = 20;
+
+	private static final int BUTTON_PREVIOUS = 0;
+	private static final int BUTTON_NEXT = 1;
+
+	private static final int[] STATUS_COLORS = { 0x55FF55, 0xFF5555, 0xFFAA00, 0xAAAAAA };
+	private static final String[] STATUS_KEYS = { "gui.teleporter.status.ready", "gui.teleporter.status.blocked", "gui.teleporter.status.disabled", "gui.teleporter.status.unknown" };
+
 	private final InventoryPlayer playerInventory;
 	private final TileEntityTeleporter tileEntity;
 
+	private GuiButton previousButton;
+	private GuiButton nextButton;
+
+	// the page of destinations last sent by the server, empty until the first one arrives
+	private int page = 0;
+	private int pageCount = 0;
+	private List<MessageDestinationPage.Entry> destinations = Collections.<MessageDestinationPage.Entry>emptyList();
+	// the key the destinations were requested for
+	private ItemStack key = ItemStack.EMPTY;
+
 	public GuiTeleporter(InventoryPlayer playerInventory, TileEntityTeleporter tileEntity)
 	{
 		super(new ContainerTeleporter(playerInventory, tileEntity));
@@ -30,11 +62,76 @@ public class GuiTeleporter extends GuiContainer
 		this.ySize = 166;
 	}
 
+	@Override
+	public void initGui()
+	{
+		super.initGui();
+
+		// centre the container and the destination panel together
+		this.guiLeft = (this.width - (this.xSize + PANEL_GAP + PANEL_WIDTH)) / 2;
+
+		int panelLeft = this.guiLeft + this.xSize + PANEL_GAP;
+		int buttonTop = this.guiTop + this.ySize - 24;
+		this.previousButton = new GuiButton(BUTTON_PREVIOUS, panelLeft + 4, buttonTop, 20, 20, "<");
+		this.nextButton = new GuiButton(BUTTON_NEXT, panelLeft + PANEL_WIDTH - 24, buttonTop, 20, 20, ">");
+		this.buttonList.add(this.previousButton);
+		this.buttonList.add(this.nextButton);
+		this.updateButtons();
+
+		this.key = this.inventorySlots.getSlot(0).getStack().copy();
+		PacketHandler.INSTANCE.sendToServer(new MessageDestinationRequest(this.page));
+	}
+
+	@Override
+	public void updateScreen()
+	{
+		super.updateScreen();
+
+		// a different key leads to different destinations, so start again from the first page
+		ItemStack key = this.inventorySlots.getSlot(0).getStack();
+		if (!ItemStack.areItemStacksEqual(key, this.key))
+		{
+			this.key = key.copy();
+			PacketHandler.INSTANCE.sendToServer(new MessageDestinationRequest(0));
+		}
+	}
+
+	/**
+	 * shows a page of destinations sent by the server
+	 */
+	public void setDestinationPage(MessageDestinationPage message)
+	{
+		this.page = message.getPage();
+		this.pageCount = message.getPageCount();
+		this.destinations = message.getEntries();
+		this.updateButtons();
+	}
+
+	private void updateButtons()
+	{
+		this.previousButton.enabled = (this.page > 0);
+		this.nextButton.enabled = (this.page < this.pageCount - 1);
+	}
+
+	@Override
+	protected void actionPerformed(GuiButton button) throws IOException
+	{
+		if (button.id == BUTTON_PREVIOUS && this.page > 0)
+		{
+			PacketHandler.INSTANCE.sendToServer(new MessageDestinationRequest(this.page - 1));
+		}
+		else if (button.id == BUTTON_NEXT && this.page < this.pageCount - 1)
+		{
+			PacketHandler.INSTANCE.sendToServer(new MessageDestinationRequest(this.page + 1));
+		}
+	}
+
 	@Override
 	protected void drawGuiContainerForegroundLayer(int mouseX, int mouseY)
 	{
 		this.fontRenderer.drawString(this.tileEntity.getDisplayName().getUnformattedText(), 8, 6, 0x404040);
 		this.fontRenderer.drawString(this.playerInventory.getDisplayName().getUnformattedText(), 8, this.ySize - 96 + 2, 0x404040);
+		this.drawDestinations();
 	}
 
 	@Override
@@ -43,6 +140,59 @@ public class GuiTeleporter extends GuiContainer
 		Minecraft.getMinecraft().getTextureManager().bindTexture(TELEPORTER_GUI_TEXTURE);
 		GlStateManager.color(1.0F, 1.0F, 1.0F, 1.0F);
 		this.drawTexturedModalRect(this.guiLeft, this.guiTop, 0, 0, this.xSize, this.ySize);
+
+		int panelLeft = this.guiLeft + this.xSize + PANEL_GAP;
+		drawRect(panelLeft, this.guiTop, panelLeft + PANEL_WIDTH, this.guiTop + this.ySize, 0xC0101010);
+	}
+
+	/**
+	 * draws the destination panel, relative to the container like the rest of the foreground
+	 */
+	private void drawDestinations()
+	{
+		int left = this.xSize + PANEL_GAP + 4;
+		int width = PANEL_WIDTH - 8;
+
+		this.fontRenderer.drawString(I18n.format("gui.teleporter.destinations"), left, 6, 0xFFFFFF);
+
+		if (this.destinations.isEmpty())
+		{
+			String empty = I18n.format(this.pageCount == 0 ? "gui.teleporter.destinations.loading" : "gui.teleporter.destinations.none");
+			this.fontRenderer.drawSplitString(empty, left, ENTRY_TOP, width, 0xAAAAAA);
+		}
+
+		String defaultName = this.getDefaultName();
+		for (int i = 0; i < this.destinations.size(); ++i)
+		{
+			MessageDestinationPage.Entry entry = this.destinations.get(i);
+			int top = ENTRY_TOP + (i * ENTRY_HEIGHT);
+
+			String status = I18n.format(STATUS_KEYS[entry.status]);
+			int statusWidth = this.fontRenderer.getStringWidth(status);
+			this.fontRenderer.drawString(status, left + width - statusWidth, top, STATUS_COLORS[entry.status]);
+
+			String name = this.fontRenderer.trimStringToWidth(entry.name != null ? entry.name : defaultName, width - statusWidth - 4);
+			this.fontRenderer.drawString(name, left, top, 0xFFFFFF);
+
+			String location = I18n.format("gui.teleporter.destination.location", entry.pos.getX(), entry.pos.getY(), entry.pos.getZ(), entry.dimension);
+			this.fontRenderer.drawString(this.fontRenderer.trimStringToWidth(location, width), left, top + 9, 0xAAAAAA);
+		}
+
+		if (this.pageCount > 1)
+		{
+			String pages = I18n.format("gui.teleporter.destinations.page", this.page + 1, this.pageCount);
+			this.fontRenderer.drawString(pages, this.xSize + PANEL_GAP + (PANEL_WIDTH - this.fontRenderer.getStringWidth(pages)) / 2, this.ySize - 18, 0xFFFFFF);
+		}
+	}
+
+	/**
+	 * destinations without a custom name are named after their type, which is the same as this teleporter's
+	 */
+	private String getDefaultName()
+	{
+		IBlockState state = this.tileEntity.getWorld().getBlockState(this.tileEntity.getPos());
+		if (!(state.getBlock() instanceof BlockTeleporter)) return "";
+		return I18n.format("tile." + state.getValue(BlockTeleporter.TYPE).getUnlocalizedName() + ".name");
 	}
 
 }
@@ -0,0 +1,67 @@
+package net.dyeo.teleporter.client.renderer.tileentity;
+
+import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.util.math.MathHelper;
+import net.minecraftforge.client.model.ModelLoader;
+import net.minecraftforge.client.model.animation.FastTESR;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+/**
+ * TileEntityTeleporterRenderer draws a glow over the top of teleporters showing whether they are disabled, found a
+ * destination or didn't find one the last time they were used.
+ *
+ * the glow is a single quad added to forge's shared buffer, so every teleporter in view is drawn in one batch, and
+ * teleporters further away than their render distance or outside the view aren't visited at all.
+ */
+@SideOnly(Side.CLIENT)
+public class TileEntityTeleporterRenderer extends FastTESR<TileEntityTeleporter>
+{
+
+	private static final int COLOR_DISABLED = 0xFF5555;
+	private static final int COLOR_FOUND = 0x55FF55;
+	private static final int COLOR_NOT_FOUND = 0xFFAA00;
+
+	// the glow sits just above the pad, inset from its edges
+	private static final double HEIGHT = 0.5 + 0.005;
+	private static final double INSET = 2.0 / 16.0;
+
+	// full brightness, so the glow shows in the dark
+	private static final int LIGHT = 240;
+
+
+	@Override
+	public void renderTileEntityFast(TileEntityTeleporter te, double x, double y, double z, float partialTicks, int destroyStage, float partial, BufferBuilder buffer)
+	{
+		int color;
+		if (te.isPowered()) color = COLOR_DISABLED;
+		else if (te.getLinkStatus() == TileEntityTeleporter.LINK_FOUND) color = COLOR_FOUND;
+		else if (te.getLinkStatus() == TileEntityTeleporter.LINK_NOT_FOUND) color = COLOR_NOT_FOUND;
+		else return;
+
+		int red = (color >> 16) & 0xFF;
+		int green = (color >> 8) & 0xFF;
+		int blue = color & 0xFF;
+
+		float time = te.getWorld().getTotalWorldTime() + partialTicks;
+		int alpha = (int)((0.35F + 0.15F * MathHelper.sin(time * 0.15F)) * 255.0F);
+
+		TextureAtlasSprite sprite = ModelLoader.White.INSTANCE;
+		float u = sprite.getInterpolatedU(8.0);
+		float v = sprite.getInterpolatedV(8.0);
+
+		double minX = x + INSET;
+		double maxX = x + 1.0 - INSET;
+		double minZ = z + INSET;
+		double maxZ = z + 1.0 - INSET;
+		double top = y + HEIGHT;
+
+		buffer.pos(minX, top, minZ).color(red, green, blue, alpha).tex(u, v).lightmap(LIGHT, LIGHT).endVertex();
+		buffer.pos(minX, top, maxZ).color(red, green, blue, alpha).tex(u, v).lightmap(LIGHT, LIGHT).endVertex();
+		buffer.pos(maxX, top, maxZ).color(red, green, blue, alpha).tex(u, v).lightmap(LIGHT, LIGHT).endVertex();
+		buffer.pos(maxX, top, minZ).color(red, green, blue, alpha).tex(u, v).lightmap(LIGHT, LIGHT).endVertex();
+	}
+
+}
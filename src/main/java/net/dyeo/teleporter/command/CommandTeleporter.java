@@ -0,0 +1,159 @@
+package net.dyeo.teleporter.command;
+
+import java.util.Collections;
+import java.util.List;
+import com.mojang.authlib.GameProfile;
+import net.dyeo.teleporter.metrics.TeleporterProfiler;
+import net.dyeo.teleporter.metrics.TeleporterStressScenario;
+import net.dyeo.teleporter.teleport.TeleporterNetwork;
+import net.dyeo.teleporter.teleport.TeleporterNetworkScanner;
+import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.DimensionManager;
+
+public class CommandTeleporter extends CommandBase
+{
+
+	private static final int DEFAULT_TOP_COUNT = 10;
+
+	@Override
+	public String getName()
+	{
+		return "teleporter";
+	}
+
+	@Override
+	public String getUsage(ICommandSender sender)
+	{
+		return "commands.teleporter.usage";
+	}
+
+	@Override
+	public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+	{
+		if (args.length < 1)
+		{
+			throw new WrongUsageException(this.getUsage(sender));
+		}
+
+		if ("check".equals(args[0]))
+		{
+			if (TeleporterNetworkScanner.start(server, sender))
+			{
+				notifyCommandListener(sender, this, "commands.teleporter.check.started");
+			}
+			else
+			{
+				throw new CommandException("commands.teleporter.check.running");
+			}
+		}
+		else if ("top".equals(args[0]))
+		{
+			this.executeTop(server, sender, args);
+		}
+		else if ("stress".equals(args[0]))
+		{
+			if (args.length < 4) throw new WrongUsageException("commands.teleporter.stress.usage");
+
+			int pads = parseInt(args[1], TeleporterStressScenario.MIN_PADS, TeleporterStressScenario.MAX_PADS);
+			int mobs = parseInt(args[2], TeleporterStressScenario.MIN_MOBS, TeleporterStressScenario.MAX_MOBS);
+			int seconds = parseInt(args[3], TeleporterStressScenario.MIN_SECONDS, TeleporterStressScenario.MAX_SECONDS);
+			if (TeleporterStressScenario.start(server, sender, pads, mobs, seconds))
+			{
+				notifyCommandListener(sender, this, "commands.teleporter.stress.started", pads, mobs, seconds);
+			}
+			else
+			{
+				throw new CommandException("commands.teleporter.stress.running");
+			}
+		}
+		else
+		{
+			throw new WrongUsageException(this.getUsage(sender));
+		}
+	}
+
+	/**
+	 * lists the teleporters that cost the server the most time, or resets or sets the window the costs are kept for
+	 */
+	private void executeTop(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+	{
+		if (args.length >= 2 && "reset".equals(args[1]))
+		{
+			TeleporterProfiler.reset();
+			notifyCommandListener(sender, this, "commands.teleporter.top.reset");
+			return;
+		}
+
+		if (args.length >= 2 && "window".equals(args[1]))
+		{
+			if (args.length < 3) throw new WrongUsageException("commands.teleporter.top.usage");
+
+			int seconds = parseInt(args[2], 0);
+			TeleporterProfiler.setWindow(seconds);
+			notifyCommandListener(sender, this, seconds > 0 ? "commands.teleporter.top.window" : "commands.teleporter.top.window.off", seconds);
+			return;
+		}
+
+		int count = (args.length >= 2 ? parseInt(args[1], 1, 64) : DEFAULT_TOP_COUNT);
+		List<TeleporterProfiler.Entry> top = TeleporterProfiler.getTop(count);
+		if (top.isEmpty())
+		{
+			sender.sendMessage(new TextComponentTranslation("commands.teleporter.top.empty"));
+			return;
+		}
+
+		sender.sendMessage(new TextComponentTranslation("commands.teleporter.top.header", TeleporterProfiler.getRecordedSeconds()));
+		for (int i = 0; i < top.size(); ++i)
+		{
+			TeleporterProfiler.Entry entry = top.get(i);
+			sender.sendMessage(new TextComponentTranslation("commands.teleporter.top.entry",
+				i + 1, entry.pos.getX(), entry.pos.getY(), entry.pos.getZ(), entry.dimension,
+				this.getOwnerName(server, entry), entry.getCalls(), entry.getTeleports(), String.format("%.1f", entry.getAverageNanos() / 1000.0D)
+			));
+		}
+	}
+
+	private ITextComponent getOwnerName(MinecraftServer server, TeleporterProfiler.Entry entry)
+	{
+		WorldServer world = DimensionManager.getWorld(entry.dimension);
+		TeleporterNode node = (world != null ? TeleporterNetwork.get(world).getNode(entry.pos, entry.dimension) : null);
+		if (node == null || node.owner == null)
+		{
+			return new TextComponentTranslation("commands.teleporter.top.public");
+		}
+
+		GameProfile profile = server.getPlayerProfileCache().getProfileByUUID(node.owner);
+		return new TextComponentString(profile != null ? profile.getName() : node.owner.toString());
+	}
+
+	@Override
+	public boolean checkPermission(MinecraftServer server, ICommandSender sender)
+	{
+		return sender.canUseCommand(2, this.getName());
+	}
+
+	@Override
+	public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, BlockPos pos)
+	{
+		if (args.length == 1)
+		{
+			return getListOfStringsMatchingLastWord(args, "check", "top", "stress");
+		}
+		if (args.length == 2 && "top".equals(args[0]))
+		{
+			return getListOfStringsMatchingLastWord(args, "reset", "window");
+		}
+		return Collections.<String>emptyList();
+	}
+
+}
@@ -4,6 +4,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.teleport.TeleporterDimensionPolicy;
+import net.dyeo.teleporter.teleport.TeleporterEntityFilter;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.common.config.Property;
 import net.minecraftforge.fml.common.Loader;
@@ -19,6 +21,19 @@ public final class ModConfiguration
 	public static int numTeleporters = 1;
 	public static boolean teleportPassiveMobs = true;
 	public static boolean teleportHostileMobs = true;
+	public static int messageCooldown = 60;
+	public static boolean checkNetworkOnStart = true;
+	public static boolean asyncResolution = false;
+	public static int areaRadius = 2;
+	public static int areaHeight = 3;
+	public static String[] entityRules = new String[0];
+	public static String[] dimensionRules = new String[0];
+	public static boolean loadDestinationDimensions = false;
+	public static boolean privateTeleporters = false;
+	public static int dimensionKeepAlive = 1200;
+	public static int metricsLogInterval = 0;
+	public static boolean traceTeleports = false;
+	public static int traceFileSize = 16;
 
 	public static String soundEffectTeleporterEnter = TeleporterMod.MODID + ":portal_enter";
 	public static String soundEffectTeleporterExit = TeleporterMod.MODID + ":portal_exit";
@@ -40,6 +55,19 @@ public final class ModConfiguration
 		Property propNumTeleporters = config.get(Configuration.CATEGORY_GENERAL, "numTeleporters", numTeleporters, "Specifies the number of teleporters created with a single recipe.\nDefault is 1");
 		Property propTeleportPassiveMobs = config.get(Configuration.CATEGORY_GENERAL, "teleportPassiveMobs", teleportPassiveMobs, "Specifies whether or not passive mobs can go through teleporters.\nDefault is true");
 		Property propTeleportHostileMobs = config.get(Configuration.CATEGORY_GENERAL, "teleportHostileMobs", teleportHostileMobs, "Specifies whether or not hostile mobs can go through teleporters.\nDefault is true");
+		Property propMessageCooldown = config.get(Configuration.CATEGORY_GENERAL, "messageCooldown", messageCooldown, "Specifies the number of ticks before the same teleporter message can be shown to a player again.\nDefault is 60");
+		Property propCheckNetworkOnStart = config.get(Configuration.CATEGORY_GENERAL, "checkNetworkOnStart", checkNetworkOnStart, "Specifies whether or not the teleporter network is checked for missing teleporters when the server starts.\nDefault is true");
+		Property propAsyncResolution = config.get(Configuration.CATEGORY_GENERAL, "asyncResolution", asyncResolution, "Specifies whether or not teleport destinations are found on worker threads and applied on the next tick, instead of immediately.\nDefault is false");
+		Property propAreaRadius = config.get(Configuration.CATEGORY_GENERAL, "areaRadius", areaRadius, "Specifies how many blocks around an area teleporter are searched for entities to teleport.\nDefault is 2");
+		Property propAreaHeight = config.get(Configuration.CATEGORY_GENERAL, "areaHeight", areaHeight, "Specifies how many blocks above an area teleporter are searched for entities to teleport.\nDefault is 3");
+		Property propEntityRules = config.get(Configuration.CATEGORY_GENERAL, "entityRules", entityRules, "Allow (+) or deny (-) rules for which entities can go through teleporters, checked in order before teleportPassiveMobs and teleportHostileMobs.\nEach rule is a registry name (-minecraft:wither), a mod id (-@somemod), a category (+#creature, from monster, creature, ambient, water_creature, player and misc) or * for every entity except players.\nFor example, \"+minecraft:villager\" followed by \"-*\" only lets players and villagers through.\nDefault is empty");
+		Property propPrivateTeleporters = config.get(Configuration.CATEGORY_GENERAL, "privateTeleporters", privateTeleporters, "Specifies whether or not teleporters placed by a player only link to other teleporters placed by the same player. Teleporters placed while this is false stay public.\nDefault is false");
+		Property propLoadDestinationDimensions = config.get(Configuration.CATEGORY_GENERAL, "loadDestinationDimensions", loadDestinationDimensions, "Specifies whether or not unloaded dimensions are loaded when an ender teleporter looks for a destination in them, instead of being skipped.\nDefault is false");
+		Property propDimensionKeepAlive = config.get(Configuration.CATEGORY_GENERAL, "dimensionKeepAlive", dimensionKeepAlive, "Specifies the number of ticks a dimension loaded by a teleporter is kept loaded after the last arrival, before it can unload again.\nDefault is 1200");
+		Property propMetricsLogInterval = config.get(Configuration.CATEGORY_GENERAL, "metricsLogInterval", metricsLogInterval, "Specifies the number of seconds between teleporter metrics being written to the log, or 0 to never log them. The metrics are always available over JMX.\nDefault is 0");
+		Property propTraceTeleports = config.get(Configuration.CATEGORY_GENERAL, "traceTeleports", traceTeleports, "Specifies whether or not every teleport is recorded to a binary trace in the teleporter-traces folder, for replaying offline.\nDefault is false");
+		Property propTraceFileSize = config.get(Configuration.CATEGORY_GENERAL, "traceFileSize", traceFileSize, "Specifies the size in megabytes a teleport trace can grow to before a new one is started. Only the newest four traces are kept.\nDefault is 16", 1, 1024);
+		Property propDimensionRules = config.get(Configuration.CATEGORY_GENERAL, "dimensionRules", dimensionRules, "Allow (+) or deny (-) rules for which dimensions ender teleporters can link, checked in order. Pairs no rule matches are allowed.\nEach rule is source>destination, where either side is a dimension id or *, optionally followed by #category to only apply to one entity category (see entityRules).\nFor example, \"-*>1\" stops anything teleporting into the end, and \"-0>-1#monster\" stops monsters going from the overworld to the nether.\nDefault is empty");
 
 		config.addCustomCategoryComment(ModConfiguration.CATEGORY_SOUNDS, "See http://minecraft.gamepedia.com/Sounds.json#Sound_events for a list of vanilla sound effects");
 		Property propSoundEffectTeleporterEnter = config.get(ModConfiguration.CATEGORY_SOUNDS, "soundEffectTeleporterEnter", soundEffectTeleporterEnter, "Sound effect to play when an entity enters a teleporter.\nDefault is \"" + TeleporterMod.MODID + ":portal_enter\", leave blank for no sound.");
@@ -52,6 +80,19 @@ public final class ModConfiguration
 		propOrderGeneral.add(propNumTeleporters.getName());
 		propOrderGeneral.add(propTeleportPassiveMobs.getName());
 		propOrderGeneral.add(propTeleportHostileMobs.getName());
+		propOrderGeneral.add(propMessageCooldown.getName());
+		propOrderGeneral.add(propCheckNetworkOnStart.getName());
+		propOrderGeneral.add(propAsyncResolution.getName());
+		propOrderGeneral.add(propAreaRadius.getName());
+		propOrderGeneral.add(propAreaHeight.getName());
+		propOrderGeneral.add(propEntityRules.getName());
+		propOrderGeneral.add(propDimensionRules.getName());
+		propOrderGeneral.add(propPrivateTeleporters.getName());
+		propOrderGeneral.add(propLoadDestinationDimensions.getName());
+		propOrderGeneral.add(propDimensionKeepAlive.getName());
+		propOrderGeneral.add(propMetricsLogInterval.getName());
+		propOrderGeneral.add(propTraceTeleports.getName());
+		propOrderGeneral.add(propTraceFileSize.getName());
 		config.setCategoryPropertyOrder(Configuration.CATEGORY_GENERAL, propOrderGeneral);
 
 		List<String> propOrderSounds = new ArrayList<String>();
@@ -65,12 +106,29 @@ public final class ModConfiguration
 		numTeleporters = propNumTeleporters.getInt();
 		teleportPassiveMobs = propTeleportPassiveMobs.getBoolean();
 		teleportHostileMobs = propTeleportHostileMobs.getBoolean();
+		messageCooldown = propMessageCooldown.getInt();
+		checkNetworkOnStart = propCheckNetworkOnStart.getBoolean();
+		asyncResolution = propAsyncResolution.getBoolean();
+		areaRadius = propAreaRadius.getInt();
+		areaHeight = propAreaHeight.getInt();
+		entityRules = propEntityRules.getStringList();
+		dimensionRules = propDimensionRules.getStringList();
+		privateTeleporters = propPrivateTeleporters.getBoolean();
+		loadDestinationDimensions = propLoadDestinationDimensions.getBoolean();
+		dimensionKeepAlive = propDimensionKeepAlive.getInt();
+		metricsLogInterval = propMetricsLogInterval.getInt();
+		traceTeleports = propTraceTeleports.getBoolean();
+		traceFileSize = propTraceFileSize.getInt();
 
 		soundEffectTeleporterEnter = propSoundEffectTeleporterEnter.getString();
 		soundEffectTeleporterExit = propSoundEffectTeleporterExit.getString();
 		soundEffectTeleporterError = propSoundEffectTeleporterError.getString();
 
 
+		TeleporterEntityFilter.compile(entityRules);
+		TeleporterDimensionPolicy.compile(dimensionRules);
+
+
 		if (config.hasChanged()) config.save();
 	}
 
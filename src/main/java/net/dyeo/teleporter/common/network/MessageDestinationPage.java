@@ -0,0 +1,127 @@
+package net.dyeo.teleporter.common.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import io.netty.buffer.ByteBuf;
+import net.dyeo.teleporter.TeleporterMod;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+/**
+ * MessageDestinationPage sends a page of the destinations of the teleporter a player has open, in reply to a
+ * {@link MessageDestinationRequest}
+ *
+ */
+public class MessageDestinationPage implements IMessage
+{
+
+	public static final byte READY = 0;
+	public static final byte BLOCKED = 1;
+	public static final byte DISABLED = 2;
+	// the destination is in a chunk that isn't loaded, so it wasn't checked
+	public static final byte UNKNOWN = 3;
+
+	private int page;
+	private int pageCount;
+	private List<Entry> entries;
+
+	public MessageDestinationPage()
+	{
+	}
+
+	public MessageDestinationPage(int page, int pageCount, List<Entry> entries)
+	{
+		this.page = page;
+		this.pageCount = pageCount;
+		this.entries = entries;
+	}
+
+
+	@Override
+	public void fromBytes(ByteBuf buf)
+	{
+		this.page = buf.readShort();
+		this.pageCount = buf.readShort();
+
+		int count = buf.readByte();
+		this.entries = new ArrayList<Entry>(count);
+		for (int i = 0; i < count; ++i)
+		{
+			BlockPos pos = BlockPos.fromLong(buf.readLong());
+			int dimension = buf.readInt();
+			String name = (buf.readBoolean() ? ByteBufUtils.readUTF8String(buf) : null);
+			byte status = buf.readByte();
+			this.entries.add(new Entry(pos, dimension, name, status));
+		}
+	}
+
+	@Override
+	public void toBytes(ByteBuf buf)
+	{
+		buf.writeShort(this.page);
+		buf.writeShort(this.pageCount);
+
+		buf.writeByte(this.entries.size());
+		for (Entry entry : this.entries)
+		{
+			buf.writeLong(entry.pos.toLong());
+			buf.writeInt(entry.dimension);
+			buf.writeBoolean(entry.name != null);
+			if (entry.name != null) ByteBufUtils.writeUTF8String(buf, entry.name);
+			buf.writeByte(entry.status);
+		}
+	}
+
+
+	public int getPage()
+	{
+		return this.page;
+	}
+
+	public int getPageCount()
+	{
+		return this.pageCount;
+	}
+
+	public List<Entry> getEntries()
+	{
+		return this.entries;
+	}
+
+
+
+	public static class Entry
+	{
+
+		public final BlockPos pos;
+		public final int dimension;
+		// the custom name of the teleporter, or null if it has none
+		public final String name;
+		public final byte status;
+
+		public Entry(BlockPos pos, int dimension, String name, byte status)
+		{
+			this.pos = pos;
+			this.dimension = dimension;
+			this.name = name;
+			this.status = status;
+		}
+
+	}
+
+
+
+	public static class Handler implements IMessageHandler<MessageDestinationPage, IMessage>
+	{
+		@Override
+		public IMessage onMessage(MessageDestinationPage message, MessageContext ctx)
+		{
+			TeleporterMod.proxy.handleDestinationPage(message);
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package net.dyeo.teleporter.common.network;
+
+import io.netty.buffer.ByteBuf;
+import net.dyeo.teleporter.inventory.ContainerTeleporter;
+import net.dyeo.teleporter.teleport.TeleporterDestinationDirectory;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+/**
+ * MessageDestinationRequest asks the server for a page of the destinations of the teleporter the player has open
+ *
+ */
+public class MessageDestinationRequest implements IMessage
+{
+
+	private int page;
+
+	public MessageDestinationRequest()
+	{
+	}
+
+	public MessageDestinationRequest(int page)
+	{
+		this.page = page;
+	}
+
+
+	@Override
+	public void fromBytes(ByteBuf buf)
+	{
+		this.page = buf.readShort();
+	}
+
+	@Override
+	public void toBytes(ByteBuf buf)
+	{
+		buf.writeShort(this.page);
+	}
+
+
+
+	public static class Handler implements IMessageHandler<MessageDestinationRequest, IMessage>
+	{
+		@Override
+		public IMessage onMessage(final MessageDestinationRequest message, MessageContext ctx)
+		{
+			final EntityPlayerMP player = ctx.getServerHandler().player;
+			player.getServerWorld().addScheduledTask(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					// only the teleporter the player actually has open can be listed
+					if (player.openContainer instanceof ContainerTeleporter && player.openContainer.canInteractWith(player))
+					{
+						ContainerTeleporter container = (ContainerTeleporter)player.openContainer;
+						PacketHandler.INSTANCE.sendTo(TeleporterDestinationDirectory.getPage(container.getTileEntity(), message.page), player);
+					}
+				}
+			});
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package net.dyeo.teleporter.common.network;
+
+import io.netty.buffer.ByteBuf;
+import net.dyeo.teleporter.teleport.TeleporterNetworkReplicator;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+/**
+ * MessageNetworkResync asks the server for a full copy of the network, when a client has missed a change
+ *
+ */
+public class MessageNetworkResync implements IMessage
+{
+
+	public MessageNetworkResync()
+	{
+	}
+
+
+	@Override
+	public void fromBytes(ByteBuf buf)
+	{
+	}
+
+	@Override
+	public void toBytes(ByteBuf buf)
+	{
+	}
+
+
+
+	public static class Handler implements IMessageHandler<MessageNetworkResync, IMessage>
+	{
+		@Override
+		public IMessage onMessage(MessageNetworkResync message, MessageContext ctx)
+		{
+			final EntityPlayerMP player = ctx.getServerHandler().player;
+			player.getServerWorld().addScheduledTask(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					TeleporterNetworkReplicator.requestFull(player);
+				}
+			});
+			return null;
+		}
+	}
+
+}
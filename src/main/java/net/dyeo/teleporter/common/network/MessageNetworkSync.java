@@ -0,0 +1,153 @@
+package net.dyeo.teleporter.common.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import io.netty.buffer.ByteBuf;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+/**
+ * MessageNetworkSync updates a client's copy of the teleporters it is allowed to see, either replacing it with a full
+ * copy or applying the changes between two generations of the network.
+ *
+ */
+public class MessageNetworkSync implements IMessage
+{
+
+	public static final byte ADD = 0;
+	public static final byte UPDATE = 1;
+	public static final byte REMOVE = 2;
+
+	private boolean full;
+	private long baseGeneration;
+	private long generation;
+	private List<Entry> entries;
+
+	public MessageNetworkSync()
+	{
+	}
+
+	/**
+	 * @param full whether the client should forget every node it knows of before applying the entries
+	 * @param baseGeneration the generation the client must be at for the entries to apply
+	 * @param generation the generation the client is at once they are applied
+	 */
+	public MessageNetworkSync(boolean full, long baseGeneration, long generation, List<Entry> entries)
+	{
+		this.full = full;
+		this.baseGeneration = baseGeneration;
+		this.generation = generation;
+		this.entries = entries;
+	}
+
+
+	@Override
+	public void fromBytes(ByteBuf buf)
+	{
+		this.full = buf.readBoolean();
+		this.baseGeneration = buf.readLong();
+		this.generation = buf.readLong();
+
+		int count = buf.readInt();
+		this.entries = new ArrayList<Entry>(count);
+		for (int i = 0; i < count; ++i)
+		{
+			byte operation = buf.readByte();
+			int dimension = buf.readInt();
+			BlockPos pos = BlockPos.fromLong(buf.readLong());
+			if (operation == REMOVE)
+			{
+				this.entries.add(new Entry(operation, new TeleporterNode(pos, dimension, BlockTeleporter.EnumType.REGULAR)));
+			}
+			else
+			{
+				BlockTeleporter.EnumType type = BlockTeleporter.EnumType.byMetadata(buf.readByte());
+				UUID owner = (buf.readBoolean() ? new UUID(buf.readLong(), buf.readLong()) : null);
+				this.entries.add(new Entry(operation, new TeleporterNode(pos, dimension, type, owner)));
+			}
+		}
+	}
+
+	@Override
+	public void toBytes(ByteBuf buf)
+	{
+		buf.writeBoolean(this.full);
+		buf.writeLong(this.baseGeneration);
+		buf.writeLong(this.generation);
+
+		buf.writeInt(this.entries.size());
+		for (Entry entry : this.entries)
+		{
+			buf.writeByte(entry.operation);
+			buf.writeInt(entry.node.dimension);
+			buf.writeLong(entry.node.pos.toLong());
+			if (entry.operation != REMOVE)
+			{
+				buf.writeByte(entry.node.type.ordinal());
+				buf.writeBoolean(entry.node.owner != null);
+				if (entry.node.owner != null)
+				{
+					buf.writeLong(entry.node.owner.getMostSignificantBits());
+					buf.writeLong(entry.node.owner.getLeastSignificantBits());
+				}
+			}
+		}
+	}
+
+
+	public boolean isFull()
+	{
+		return this.full;
+	}
+
+	public long getBaseGeneration()
+	{
+		return this.baseGeneration;
+	}
+
+	public long getGeneration()
+	{
+		return this.generation;
+	}
+
+	public List<Entry> getEntries()
+	{
+		return this.entries;
+	}
+
+
+
+	public static class Entry
+	{
+
+		public final byte operation;
+		// only the position and dimension of a removed node are sent
+		public final TeleporterNode node;
+
+		public Entry(byte operation, TeleporterNode node)
+		{
+			this.operation = operation;
+			this.node = node;
+		}
+
+	}
+
+
+
+	public static class Handler implements IMessageHandler<MessageNetworkSync, IMessage>
+	{
+		@Override
+		public IMessage onMessage(MessageNetworkSync message, MessageContext ctx)
+		{
+			TeleporterMod.proxy.handleNetworkSync(message);
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+package net.dyeo.teleporter.common.network;
+
+import io.netty.buffer.ByteBuf;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+/**
+ * MessageTeleportEffects tells nearby clients to play the sounds and particles for one or more teleports
+ * between the same pair of teleporters, so that the effects can be played locally instead of broadcast by the server.
+ *
+ */
+public class MessageTeleportEffects implements IMessage
+{
+
+	private static final int MAX_COUNT = Short.MAX_VALUE;
+
+	// which ends of the teleport the receiving client should play effects at
+	private static final int END_SOURCE = 1;
+	private static final int END_DESTINATION = 2;
+
+	private BlockPos sourcePos;
+	private int sourceDimension;
+	private BlockPos destinationPos;
+	private int destinationDimension;
+	private boolean succeeded;
+	private int count;
+	private int ends = END_SOURCE | END_DESTINATION;
+
+	public MessageTeleportEffects()
+	{
+	}
+
+	public MessageTeleportEffects(TeleporterNode sourceNode, TeleporterNode destinationNode, boolean succeeded)
+	{
+		this.sourcePos = sourceNode.pos;
+		this.sourceDimension = sourceNode.dimension;
+		this.destinationPos = (destinationNode != null ? destinationNode.pos : null);
+		this.destinationDimension = (destinationNode != null ? destinationNode.dimension : 0);
+		this.succeeded = succeeded;
+		this.count = 1;
+	}
+
+	private MessageTeleportEffects(MessageTeleportEffects message, int ends)
+	{
+		this.sourcePos = message.sourcePos;
+		this.sourceDimension = message.sourceDimension;
+		this.destinationPos = message.destinationPos;
+		this.destinationDimension = message.destinationDimension;
+		this.succeeded = message.succeeded;
+		this.count = message.count;
+		this.ends = ends;
+	}
+
+
+	@Override
+	public void fromBytes(ByteBuf buf)
+	{
+		this.sourcePos = BlockPos.fromLong(buf.readLong());
+		this.sourceDimension = buf.readInt();
+		if (buf.readBoolean())
+		{
+			this.destinationPos = BlockPos.fromLong(buf.readLong());
+			this.destinationDimension = buf.readInt();
+		}
+		this.succeeded = buf.readBoolean();
+		this.count = buf.readShort();
+		this.ends = buf.readByte();
+	}
+
+	@Override
+	public void toBytes(ByteBuf buf)
+	{
+		buf.writeLong(this.sourcePos.toLong());
+		buf.writeInt(this.sourceDimension);
+		buf.writeBoolean(this.destinationPos != null);
+		if (this.destinationPos != null)
+		{
+			buf.writeLong(this.destinationPos.toLong());
+			buf.writeInt(this.destinationDimension);
+		}
+		buf.writeBoolean(this.succeeded);
+		buf.writeShort(this.count);
+		buf.writeByte(this.ends);
+	}
+
+
+	public BlockPos getSourcePos()
+	{
+		return this.sourcePos;
+	}
+
+	public int getSourceDimension()
+	{
+		return this.sourceDimension;
+	}
+
+	public BlockPos getDestinationPos()
+	{
+		return this.destinationPos;
+	}
+
+	public int getDestinationDimension()
+	{
+		return this.destinationDimension;
+	}
+
+	public boolean hasDestination()
+	{
+		return this.destinationPos != null;
+	}
+
+	public boolean getSucceeded()
+	{
+		return this.succeeded;
+	}
+
+	public int getCount()
+	{
+		return this.count;
+	}
+
+	public void incrementCount()
+	{
+		if (this.count < MAX_COUNT) this.count++;
+	}
+
+	/**
+	 * a copy of this message for the players around the source teleporter
+	 */
+	public MessageTeleportEffects forSource()
+	{
+		return new MessageTeleportEffects(this, END_SOURCE);
+	}
+
+	/**
+	 * a copy of this message for the players around the destination teleporter
+	 */
+	public MessageTeleportEffects forDestination()
+	{
+		return new MessageTeleportEffects(this, END_DESTINATION);
+	}
+
+	public boolean isForSource()
+	{
+		return (this.ends & END_SOURCE) != 0;
+	}
+
+	public boolean isForDestination()
+	{
+		return (this.ends & END_DESTINATION) != 0;
+	}
+
+
+
+	public static class Handler implements IMessageHandler<MessageTeleportEffects, IMessage>
+	{
+		@Override
+		public IMessage onMessage(MessageTeleportEffects message, MessageContext ctx)
+		{
+			TeleporterMod.proxy.handleTeleportEffects(message);
+			return null;
+		}
+	}
+
+}
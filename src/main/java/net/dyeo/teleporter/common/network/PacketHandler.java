@@ -0,0 +1,25 @@
+package net.dyeo.teleporter.common.network;
+
+import net.dyeo.teleporter.TeleporterMod;
+import net.minecraftforge.fml.common.network.NetworkRegistry;
+import net.minecraftforge.fml.common.network.simpleimpl.SimpleNetworkWrapper;
+import net.minecraftforge.fml.relauncher.Side;
+
+public class PacketHandler
+{
+
+	public static final SimpleNetworkWrapper INSTANCE = NetworkRegistry.INSTANCE.newSimpleChannel(TeleporterMod.MODID);
+
+	private static int discriminator = 0;
+
+
+	public static void registerMessages()
+	{
+		INSTANCE.registerMessage(MessageTeleportEffects.Handler.class, MessageTeleportEffects.class, discriminator++, Side.CLIENT);
+		INSTANCE.registerMessage(MessageNetworkSync.Handler.class, MessageNetworkSync.class, discriminator++, Side.CLIENT);
+		INSTANCE.registerMessage(MessageNetworkResync.Handler.class, MessageNetworkResync.class, discriminator++, Side.SERVER);
+		INSTANCE.registerMessage(MessageDestinationPage.Handler.class, MessageDestinationPage.class, discriminator++, Side.CLIENT);
+		INSTANCE.registerMessage(MessageDestinationRequest.Handler.class, MessageDestinationRequest.class, discriminator++, Side.SERVER);
+	}
+
+}
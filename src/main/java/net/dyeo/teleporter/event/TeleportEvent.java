@@ -1,8 +1,18 @@
 package net.dyeo.teleporter.event;
 
+import javax.annotation.Nullable;
+import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityLivingBase;
+import net.minecraftforge.event.entity.EntityEvent;
 import net.minecraftforge.event.entity.living.LivingEvent;
 
+/**
+ * the events posted on the forge event bus as entities go through teleporters. every event is posted on the server
+ * thread, and the nodes they carry belong to the live network and must be treated as read-only.
+ *
+ * to consume teleports away from the server thread, subscribe to the {@link TeleportEventStream} instead.
+ */
 public class TeleportEvent
 {
 
@@ -14,4 +24,100 @@ public class TeleportEvent
 		}
 	}
 
+	/**
+	 * posted when a non-living entity, such as an item or a minecart, goes through a teleporter
+	 */
+	public static class EntityTransferredEvent extends EntityEvent
+	{
+		public EntityTransferredEvent(Entity entity)
+		{
+			super(entity);
+		}
+	}
+
+
+	/**
+	 * posted before the network is searched for a destination. an area teleport searches once, for the entity that set
+	 * it off. with asyncResolution, it is posted once on the server thread when the search is handed to a worker. if the
+	 * destinations the worker found are no longer valid when they are applied, the rest of the network is searched
+	 * without posting it again
+	 */
+	public static class PreResolveEvent extends EntityEvent
+	{
+		private final TeleporterNode sourceNode;
+
+		public PreResolveEvent(Entity entity, TeleporterNode sourceNode)
+		{
+			super(entity);
+			this.sourceNode = sourceNode;
+		}
+
+		public TeleporterNode getSourceNode()
+		{
+			return this.sourceNode;
+		}
+	}
+
+	/**
+	 * posted once a destination has been chosen, or none was found
+	 */
+	public static class PostResolveEvent extends EntityEvent
+	{
+		private final TeleporterNode sourceNode;
+		private final TeleporterNode destinationNode;
+
+		public PostResolveEvent(Entity entity, TeleporterNode sourceNode, @Nullable TeleporterNode destinationNode)
+		{
+			super(entity);
+			this.sourceNode = sourceNode;
+			this.destinationNode = destinationNode;
+		}
+
+		public TeleporterNode getSourceNode()
+		{
+			return this.sourceNode;
+		}
+
+		@Nullable
+		public TeleporterNode getDestinationNode()
+		{
+			return this.destinationNode;
+		}
+	}
+
+	/**
+	 * posted after every teleport attempt, successful or not. the entity is the one at the destination, which is a new
+	 * entity when it changed dimension, or the entity that tried to teleport if the attempt failed
+	 */
+	public static class PostTransferEvent extends EntityEvent
+	{
+		private final TeleporterNode sourceNode;
+		private final TeleporterNode destinationNode;
+		private final boolean succeeded;
+
+		public PostTransferEvent(Entity entity, TeleporterNode sourceNode, @Nullable TeleporterNode destinationNode, boolean succeeded)
+		{
+			super(entity);
+			this.sourceNode = sourceNode;
+			this.destinationNode = destinationNode;
+			this.succeeded = succeeded;
+		}
+
+		public TeleporterNode getSourceNode()
+		{
+			return this.sourceNode;
+		}
+
+		@Nullable
+		public TeleporterNode getDestinationNode()
+		{
+			return this.destinationNode;
+		}
+
+		public boolean hasSucceeded()
+		{
+			return this.succeeded;
+		}
+	}
+
 }
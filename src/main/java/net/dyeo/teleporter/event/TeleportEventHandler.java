@@ -1,105 +1,147 @@
 package net.dyeo.teleporter.event;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
 import net.dyeo.teleporter.block.BlockTeleporter;
 import net.dyeo.teleporter.capabilities.CapabilityTeleportHandler;
 import net.dyeo.teleporter.capabilities.EnumTeleportStatus;
 import net.dyeo.teleporter.capabilities.ITeleportHandler;
+import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.event.entity.EntityJoinWorldEvent;
 import net.minecraftforge.event.entity.living.LivingEvent.LivingUpdateEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
 
 public class TeleportEventHandler
 {
 
-	private static List<EntityLivingBase> entities = new ArrayList<EntityLivingBase>();
+	// the entities waiting to leave the teleporter they arrived on, checked for every living update so kept in a set
+	private static Set<Entity> entities = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
 
 
 	private static class TeleportUpdateHandler
 	{
+		private final BlockPos.MutableBlockPos belowPos = new BlockPos.MutableBlockPos();
+
 		@SubscribeEvent
 		public void onLivingUpdate(LivingUpdateEvent event)
 		{
-			if (!event.getEntity().getEntityWorld().isRemote && entities.contains(event.getEntityLiving()))
+			if (!event.getEntity().getEntityWorld().isRemote && entities.contains(event.getEntityLiving()) && this.update(event.getEntityLiving()))
+			{
+				untrack(event.getEntityLiving());
+			}
+		}
+
+		// non-living entities have no update event of their own, so they're updated once per server tick instead.
+		// dead entities of any kind are dropped here too
+		@SubscribeEvent
+		public void onServerTick(TickEvent.ServerTickEvent event)
+		{
+			if (event.phase == TickEvent.Phase.END)
 			{
-				EntityLivingBase entity = event.getEntityLiving();
-				if (entity.hasCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null))
+				Iterator<Entity> iterator = entities.iterator();
+				while (iterator.hasNext())
 				{
-					ITeleportHandler handler = ((ITeleportHandler)entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null));
-					boolean onTeleporter = entity.getEntityWorld().getBlockState(entity.getPosition().down()).getBlock() instanceof BlockTeleporter;
+					Entity entity = iterator.next();
+					if (entity.isDead || (!(entity instanceof EntityLivingBase) && this.update(entity)))
+					{
+						iterator.remove();
+					}
+				}
+				if (entities.isEmpty())
+				{
+					MinecraftForge.EVENT_BUS.unregister(updateHandler);
+				}
+			}
+		}
+
+		/**
+		 * returns true once the entity has left the teleporter and no longer needs to be tracked
+		 */
+		private boolean update(Entity entity)
+		{
+			ITeleportHandler handler = entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
+			if (handler != null)
+			{
+				this.belowPos.setPos(entity.posX, entity.posY + 0.5D, entity.posZ).move(EnumFacing.DOWN);
+				boolean onTeleporter = entity.getEntityWorld().getBlockState(this.belowPos).getBlock() instanceof BlockTeleporter;
 
-					if (handler.getTeleportStatus() == EnumTeleportStatus.IN_PROGRESS)
+				if (handler.getTeleportStatus() == EnumTeleportStatus.IN_PROGRESS)
+				{
+					if (onTeleporter)
 					{
-						if (onTeleporter)
-						{
-							handler.setTeleportStatus(EnumTeleportStatus.SUCCEEDED);
-						}
-						else return;
+						handler.setTeleportStatus(EnumTeleportStatus.SUCCEEDED);
 					}
+					else return false;
+				}
 
-					if (handler.getTeleportStatus() == EnumTeleportStatus.SUCCEEDED || handler.getTeleportStatus() == EnumTeleportStatus.FAILED)
+				if (handler.getTeleportStatus() == EnumTeleportStatus.SUCCEEDED || handler.getTeleportStatus() == EnumTeleportStatus.FAILED)
+				{
+					if (!onTeleporter)
 					{
-						if (!onTeleporter)
-						{
-							handler.setOnTeleporter(false);
-							handler.setTeleportStatus(EnumTeleportStatus.INACTIVE);
-
-							entities.remove(entity);
-							if (entities.size() == 0)
-							{
-								MinecraftForge.EVENT_BUS.unregister(updateHandler);
-							}
-						}
+						handler.setOnTeleporter(false);
+						handler.setTeleportStatus(EnumTeleportStatus.INACTIVE);
+						return true;
 					}
 				}
 			}
+			return false;
 		}
 	}
 
 	private static TeleportUpdateHandler updateHandler = new TeleportUpdateHandler();
 
 
-	@SubscribeEvent
-	public void onEntityTeleported(TeleportEvent.EntityTeleportedEvent event)
+	private static void track(Entity entity)
 	{
-		if (!entities.contains(event.getEntityLiving()))
+		if (entities.add(entity) && entities.size() == 1)
 		{
-			entities.add(event.getEntityLiving());
+			MinecraftForge.EVENT_BUS.register(updateHandler);
 		}
-		if (entities.size() == 1)
+	}
+
+	private static void untrack(Entity entity)
+	{
+		if (entities.remove(entity) && entities.isEmpty())
 		{
-			MinecraftForge.EVENT_BUS.register(updateHandler);
+			MinecraftForge.EVENT_BUS.unregister(updateHandler);
 		}
 	}
 
+
+	@SubscribeEvent
+	public void onEntityTeleported(TeleportEvent.EntityTeleportedEvent event)
+	{
+		track(event.getEntityLiving());
+	}
+
+	@SubscribeEvent
+	public void onEntityTransferred(TeleportEvent.EntityTransferredEvent event)
+	{
+		track(event.getEntity());
+	}
+
 	@SubscribeEvent
 	public void onEntityJoinWorld(EntityJoinWorldEvent event)
 	{
-		if (event.getEntity() instanceof EntityLivingBase)
+		Entity entity = event.getEntity();
+		ITeleportHandler handler = entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
+		if (handler != null)
 		{
-			EntityLivingBase entity = (EntityLivingBase)event.getEntity();
-			if (entity.hasCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null))
+			if (handler.getTeleportStatus() == EnumTeleportStatus.IN_PROGRESS)
 			{
-				ITeleportHandler handler = ((ITeleportHandler)entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null));
-				if (handler.getTeleportStatus() == EnumTeleportStatus.IN_PROGRESS)
-				{
-					if (!entities.contains(entity))
-					{
-						entities.add(entity);
-					}
-					if (entities.size() == 1)
-					{
-						MinecraftForge.EVENT_BUS.register(updateHandler);
-					}
-				}
-				else
-				{
-					handler.setOnTeleporter(false);
-					handler.setTeleportStatus(EnumTeleportStatus.INACTIVE);
-				}
+				track(entity);
+			}
+			else
+			{
+				handler.setOnTeleporter(false);
+				handler.setTeleportStatus(EnumTeleportStatus.INACTIVE);
 			}
 		}
 	}
@@ -0,0 +1,175 @@
+package net.dyeo.teleporter.event;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.minecraft.entity.Entity;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+/**
+ * TeleportEventStream publishes a {@link TeleportRecord} for every teleport event to subscribers that read them on
+ * their own threads, such as loggers, analytics or map integrations.
+ *
+ * each subscription has its own bounded ring buffer, written by the server thread and read by a single consumer
+ * thread without locks. the server never waits for a consumer: once a buffer fills up, new records are dropped, or with
+ * {@link Backpressure#SAMPLE} only some of them are kept while the buffer is more than half full. nothing is recorded
+ * while there are no subscribers.
+ */
+public final class TeleportEventStream
+{
+
+	public static enum Backpressure
+	{
+		// keep every record until the buffer is full, then drop new ones until the consumer catches up
+		DROP,
+		// once the buffer is half full, keep one record in every SAMPLE_RATE, then drop new ones when it is full
+		SAMPLE
+	}
+
+	public static final int SAMPLE_RATE = 8;
+
+	private static final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+
+	private TeleportEventStream()
+	{
+	}
+
+
+	/**
+	 * subscribes to the stream. the capacity is rounded up to a power of two
+	 */
+	public static Subscription subscribe(int capacity, Backpressure backpressure)
+	{
+		Subscription subscription = new Subscription(capacity, backpressure);
+		subscriptions.add(subscription);
+		return subscription;
+	}
+
+	public static boolean hasSubscribers()
+	{
+		return !subscriptions.isEmpty();
+	}
+
+	/**
+	 * publishes a record of a teleport event to every subscriber. only called on the server thread
+	 */
+	public static void publish(TeleportRecord.Phase phase, Entity entity, TeleporterNode sourceNode, @Nullable TeleporterNode destinationNode, boolean succeeded)
+	{
+		if (subscriptions.isEmpty()) return;
+
+		TeleportRecord record = new TeleportRecord(phase, FMLCommonHandler.instance().getMinecraftServerInstance().getTickCounter(), entity, sourceNode, destinationNode, succeeded);
+		for (Subscription subscription : subscriptions)
+		{
+			subscription.offer(record);
+		}
+	}
+
+
+
+	public static final class Subscription implements AutoCloseable
+	{
+
+		private final AtomicReferenceArray<TeleportRecord> buffer;
+		private final int mask;
+		private final Backpressure backpressure;
+
+		// the next index to read, only advanced by the consumer
+		private final AtomicLong head = new AtomicLong();
+		// the next index to write, only advanced by the server thread
+		private final AtomicLong tail = new AtomicLong();
+
+		private final LongAdder dropped = new LongAdder();
+		private final LongAdder sampledOut = new LongAdder();
+		private int sampleCounter = 0;
+
+		private Subscription(int capacity, Backpressure backpressure)
+		{
+			int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+			this.buffer = new AtomicReferenceArray<TeleportRecord>(size);
+			this.mask = size - 1;
+			this.backpressure = backpressure;
+		}
+
+		private void offer(TeleportRecord record)
+		{
+			long tail = this.tail.get();
+			long size = tail - this.head.get();
+
+			if (size >= this.buffer.length())
+			{
+				this.dropped.increment();
+				return;
+			}
+			if (this.backpressure == Backpressure.SAMPLE && size >= (this.buffer.length() >> 1) && (++this.sampleCounter % SAMPLE_RATE) != 0)
+			{
+				this.sampledOut.increment();
+				return;
+			}
+
+			// the record must be in place before the consumer can see the new tail
+			this.buffer.lazySet((int)(tail & this.mask), record);
+			this.tail.lazySet(tail + 1);
+		}
+
+		/**
+		 * takes the oldest record, or returns null if there are none. only call this from one thread at a time
+		 */
+		@Nullable
+		public TeleportRecord poll()
+		{
+			long head = this.head.get();
+			if (head >= this.tail.get()) return null;
+
+			int index = (int)(head & this.mask);
+			TeleportRecord record = this.buffer.get(index);
+			this.buffer.lazySet(index, null);
+			this.head.lazySet(head + 1);
+			return record;
+		}
+
+		/**
+		 * moves up to max of the oldest records into the collection, returning how many were moved
+		 */
+		public int drainTo(Collection<? super TeleportRecord> collection, int max)
+		{
+			int count = 0;
+			TeleportRecord record;
+			while (count < max && (record = this.poll()) != null)
+			{
+				collection.add(record);
+				++count;
+			}
+			return count;
+		}
+
+		/**
+		 * the number of records dropped because the buffer was full
+		 */
+		public long getDropped()
+		{
+			return this.dropped.sum();
+		}
+
+		/**
+		 * the number of records left out by sampling
+		 */
+		public long getSampledOut()
+		{
+			return this.sampledOut.sum();
+		}
+
+		@Override
+		public void close()
+		{
+			subscriptions.remove(this);
+		}
+
+	}
+
+}
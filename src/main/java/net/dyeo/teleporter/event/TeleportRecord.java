@@ -0,0 +1,74 @@
+package net.dyeo.teleporter.event;
+
+import java.util.UUID;
+import javax.annotation.Nullable;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityList;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * TeleportRecord is an immutable copy of a {@link TeleportEvent}, published to the {@link TeleportEventStream}. it only
+ * holds values, never the entity or the nodes themselves, so it is safe to read from any thread.
+ */
+public final class TeleportRecord
+{
+
+	public static enum Phase
+	{
+		PRE_RESOLVE,
+		POST_RESOLVE,
+		POST_TRANSFER
+	}
+
+
+	public final Phase phase;
+	public final int tick;
+
+	public final UUID entityId;
+	// the registry name of the entity, or null for players
+	@Nullable
+	public final ResourceLocation entityType;
+
+	public final int sourceDimension;
+	public final BlockPos sourcePos;
+	public final BlockTeleporter.EnumType sourceType;
+	// the owner of the source's private network, or null for the public network
+	@Nullable
+	public final UUID owner;
+
+	// the destination is only known after resolving, and is null if none was found
+	public final int destinationDimension;
+	@Nullable
+	public final BlockPos destinationPos;
+
+	// whether the entity arrived at the destination, only set after the transfer
+	public final boolean succeeded;
+
+	TeleportRecord(Phase phase, int tick, Entity entity, TeleporterNode sourceNode, @Nullable TeleporterNode destinationNode, boolean succeeded)
+	{
+		this.phase = phase;
+		this.tick = tick;
+		this.entityId = entity.getUniqueID();
+		this.entityType = EntityList.getKey(entity);
+		this.sourceDimension = sourceNode.dimension;
+		this.sourcePos = sourceNode.pos.toImmutable();
+		this.sourceType = sourceNode.type;
+		this.owner = sourceNode.owner;
+		this.destinationDimension = (destinationNode != null ? destinationNode.dimension : 0);
+		this.destinationPos = (destinationNode != null ? destinationNode.pos.toImmutable() : null);
+		this.succeeded = succeeded;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "{ \"phase\":\"" + this.phase + "\", \"tick\":" + this.tick + ", \"entity\":\"" + this.entityId + "\", \"type\":" + (this.entityType != null ? "\"" + this.entityType + "\"" : "null")
+			+ ", \"source\":{ \"x\":" + this.sourcePos.getX() + ", \"y\":" + this.sourcePos.getY() + ", \"z\":" + this.sourcePos.getZ() + ", \"dim\":" + this.sourceDimension + " }"
+			+ ", \"destination\":" + (this.destinationPos != null ? "{ \"x\":" + this.destinationPos.getX() + ", \"y\":" + this.destinationPos.getY() + ", \"z\":" + this.destinationPos.getZ() + ", \"dim\":" + this.destinationDimension + " }" : "null")
+			+ ", \"succeeded\":" + this.succeeded + " }";
+	}
+
+}
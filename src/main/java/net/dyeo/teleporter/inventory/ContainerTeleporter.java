@@ -50,6 +50,11 @@ public class ContainerTeleporter extends Container
 		}
 	}
 
+	public TileEntityTeleporter getTileEntity()
+	{
+		return this.tileEntity;
+	}
+
 	@Override
 	public boolean canInteractWith(EntityPlayer player)
 	{
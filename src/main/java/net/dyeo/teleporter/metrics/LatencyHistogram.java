@@ -0,0 +1,90 @@
+package net.dyeo.teleporter.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram records durations in nanoseconds into power-of-two buckets without taking locks, so it can be
+ * recorded to from any thread on every call. percentiles are reported as the upper bound of their bucket.
+ *
+ */
+public class LatencyHistogram
+{
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+
+	public void record(long nanos)
+	{
+		if (nanos < 0) nanos = 0;
+
+		this.buckets.incrementAndGet(Math.min(BUCKETS - Long.numberOfLeadingZeros(nanos), BUCKETS - 1));
+		this.count.increment();
+		this.total.add(nanos);
+
+		long currentMax;
+		while (nanos > (currentMax = this.max.get()) && !this.max.compareAndSet(currentMax, nanos)) {}
+	}
+
+	public long getCount()
+	{
+		return this.count.sum();
+	}
+
+	public long getMeanNanos()
+	{
+		long count = this.count.sum();
+		return count > 0 ? this.total.sum() / count : 0;
+	}
+
+	public long getMaxNanos()
+	{
+		return this.max.get();
+	}
+
+	/**
+	 * gets an upper bound for the given percentile, between 0 and 1, of the recorded durations
+	 */
+	public long getPercentileNanos(double percentile)
+	{
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; ++i)
+		{
+			counts[i] = this.buckets.get(i);
+			count += counts[i];
+		}
+		if (count == 0) return 0;
+
+		long threshold = (long)Math.ceil(count * percentile);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i)
+		{
+			seen += counts[i];
+			if (seen >= threshold)
+			{
+				// bucket i holds durations below 2^i nanoseconds, and never more than the largest one seen
+				return Math.min(i == 0 ? 0 : (1L << i) - 1, this.max.get());
+			}
+		}
+		return this.max.get();
+	}
+
+	public void reset()
+	{
+		for (int i = 0; i < BUCKETS; ++i)
+		{
+			this.buckets.set(i, 0);
+		}
+		this.count.reset();
+		this.total.reset();
+		this.max.set(0);
+	}
+
+}
@@ -0,0 +1,346 @@
+package net.dyeo.teleporter.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.common.config.ModConfiguration;
+import net.dyeo.teleporter.teleport.TeleporterNetwork;
+import net.dyeo.teleporter.teleport.TeleporterNetworkSnapshot;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * TeleporterMetrics counts what teleporters do and how long it takes. every counter is a LongAdder and every duration
+ * goes into a lock-free histogram, so recording is cheap enough to stay on all the time.
+ *
+ * the metrics are exported as an MXBean named "net.dyeo.teleporter:type=Metrics", and can also be written to the log
+ * periodically.
+ */
+public class TeleporterMetrics implements TeleporterMetricsMXBean
+{
+
+	public static final TeleporterMetrics INSTANCE = new TeleporterMetrics();
+
+	private static final String OBJECT_NAME = "net.dyeo.teleporter:type=Metrics";
+	private static final double NANOS_PER_MICRO = 1000.0D;
+
+	private final LongAdder teleportAttempts = new LongAdder();
+	private final LongAdder teleportSuccesses = new LongAdder();
+	private final LongAdder teleportFailuresNoDestination = new LongAdder();
+	private final LongAdder teleportFailuresTransfer = new LongAdder();
+	private final LongAdder teleportFailuresBlocked = new LongAdder();
+	private final LongAdder teleportFailuresDisabled = new LongAdder();
+	private final LongAdder teleportFailuresDimensionPolicy = new LongAdder();
+	private final LongAdder teleportFailuresFiltered = new LongAdder();
+	private final LongAdder sameDimensionTeleports = new LongAdder();
+	private final LongAdder crossDimensionTeleports = new LongAdder();
+	private final LatencyHistogram teleportTime = new LatencyHistogram();
+
+	private final LongAdder scans = new LongAdder();
+	private final LongAdder nodesScanned = new LongAdder();
+	private final LongAdder tileEntityLookups = new LongAdder();
+	private final LongAdder chunkLoads = new LongAdder();
+	private final LatencyHistogram scanTime = new LatencyHistogram();
+
+	private final LatencyHistogram saveTime = new LatencyHistogram();
+	private final LatencyHistogram loadTime = new LatencyHistogram();
+
+	private TeleporterMetrics()
+	{
+	}
+
+
+	public static void register()
+	{
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) server.registerMBean(INSTANCE, name);
+		}
+		catch (Exception ex)
+		{
+			TeleporterMod.LOGGER.warn("Unable to register teleporter metrics with JMX", ex);
+		}
+	}
+
+
+	/**
+	 * records a call to TeleporterUtility.teleport
+	 *
+	 * @param hasDestination whether a destination was found
+	 * @param succeeded whether the entity arrived at the destination
+	 * @param crossDimension whether the entity had to change dimension
+	 */
+	public static void recordTeleport(boolean hasDestination, boolean succeeded, boolean crossDimension, long nanos)
+	{
+		INSTANCE.teleportAttempts.increment();
+		if (succeeded)
+		{
+			INSTANCE.teleportSuccesses.increment();
+			(crossDimension ? INSTANCE.crossDimensionTeleports : INSTANCE.sameDimensionTeleports).increment();
+		}
+		else
+		{
+			(hasDestination ? INSTANCE.teleportFailuresTransfer : INSTANCE.teleportFailuresNoDestination).increment();
+		}
+		INSTANCE.teleportTime.record(nanos);
+	}
+
+	/**
+	 * records a destination scan and the number of nodes it checked. a scan that found nothing is counted as a failure
+	 * for each reason it passed over teleporters for, so one failure can count under more than one reason
+	 *
+	 * @param found whether the scan found a destination
+	 * @param blocked the number of teleporters passed over because they were obstructed
+	 * @param disabled the number of teleporters passed over because they were powered
+	 * @param denied the number of teleporters passed over because the dimension policy refused them
+	 */
+	public static void recordScan(int nodes, boolean found, int blocked, int disabled, int denied, long nanos)
+	{
+		INSTANCE.scans.increment();
+		INSTANCE.nodesScanned.add(nodes);
+		INSTANCE.scanTime.record(nanos);
+
+		if (!found)
+		{
+			if (blocked > 0) INSTANCE.teleportFailuresBlocked.increment();
+			if (disabled > 0) INSTANCE.teleportFailuresDisabled.increment();
+			if (denied > 0) INSTANCE.teleportFailuresDimensionPolicy.increment();
+		}
+	}
+
+	/**
+	 * records an entity on a teleporter that the entity rules don't let use it
+	 */
+	public static void recordFiltered()
+	{
+		INSTANCE.teleportFailuresFiltered.increment();
+	}
+
+	public static void recordTileEntityLookup(boolean chunkLoaded)
+	{
+		INSTANCE.tileEntityLookups.increment();
+		if (!chunkLoaded) INSTANCE.chunkLoads.increment();
+	}
+
+	public static void recordSave(long nanos)
+	{
+		INSTANCE.saveTime.record(nanos);
+	}
+
+	public static void recordLoad(long nanos)
+	{
+		INSTANCE.loadTime.record(nanos);
+	}
+
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		if (event.phase == TickEvent.Phase.END && ModConfiguration.metricsLogInterval > 0)
+		{
+			int tickCounter = FMLCommonHandler.instance().getMinecraftServerInstance().getTickCounter();
+			if (tickCounter % (ModConfiguration.metricsLogInterval * 20) == 0)
+			{
+				TeleporterMod.LOGGER.info(
+					"Teleporter metrics: {} teleports ({} succeeded, {} without destination, {} failed transfers, {} cross-dimension), {} without destination past blocked, {} past disabled, {} past dimension policy, {} filtered, teleport {}/{}us mean/p99, {} scans over {} nodes, scan {}/{}us mean/p99, {} tile entity lookups, {} chunk loads, {} nodes",
+					this.getTeleportAttempts(), this.getTeleportSuccesses(), this.getTeleportFailuresNoDestination(), this.getTeleportFailuresTransfer(), this.getCrossDimensionTeleports(),
+					this.getTeleportFailuresBlocked(), this.getTeleportFailuresDisabled(), this.getTeleportFailuresDimensionPolicy(), this.getTeleportFailuresFiltered(),
+					Math.round(this.getTeleportTimeMeanMicros()), Math.round(this.getTeleportTimeP99Micros()),
+					this.getScans(), this.getNodesScanned(), Math.round(this.getScanTimeMeanMicros()), Math.round(this.getScanTimeP99Micros()),
+					this.getTileEntityLookups(), this.getChunkLoads(), TeleporterNetwork.getLatestSnapshot().size()
+				);
+			}
+		}
+	}
+
+
+	@Override
+	public long getTeleportAttempts()
+	{
+		return this.teleportAttempts.sum();
+	}
+
+	@Override
+	public long getTeleportSuccesses()
+	{
+		return this.teleportSuccesses.sum();
+	}
+
+	@Override
+	public long getTeleportFailuresNoDestination()
+	{
+		return this.teleportFailuresNoDestination.sum();
+	}
+
+	@Override
+	public long getTeleportFailuresTransfer()
+	{
+		return this.teleportFailuresTransfer.sum();
+	}
+
+	@Override
+	public long getTeleportFailuresBlocked()
+	{
+		return this.teleportFailuresBlocked.sum();
+	}
+
+	@Override
+	public long getTeleportFailuresDisabled()
+	{
+		return this.teleportFailuresDisabled.sum();
+	}
+
+	@Override
+	public long getTeleportFailuresDimensionPolicy()
+	{
+		return this.teleportFailuresDimensionPolicy.sum();
+	}
+
+	@Override
+	public long getTeleportFailuresFiltered()
+	{
+		return this.teleportFailuresFiltered.sum();
+	}
+
+	@Override
+	public long getSameDimensionTeleports()
+	{
+		return this.sameDimensionTeleports.sum();
+	}
+
+	@Override
+	public long getCrossDimensionTeleports()
+	{
+		return this.crossDimensionTeleports.sum();
+	}
+
+	@Override
+	public double getTeleportTimeMeanMicros()
+	{
+		return this.teleportTime.getMeanNanos() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getTeleportTimeP99Micros()
+	{
+		return this.teleportTime.getPercentileNanos(0.99D) / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getTeleportTimeMaxMicros()
+	{
+		return this.teleportTime.getMaxNanos() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public long getScans()
+	{
+		return this.scans.sum();
+	}
+
+	@Override
+	public long getNodesScanned()
+	{
+		return this.nodesScanned.sum();
+	}
+
+	@Override
+	public long getTileEntityLookups()
+	{
+		return this.tileEntityLookups.sum();
+	}
+
+	@Override
+	public long getChunkLoads()
+	{
+		return this.chunkLoads.sum();
+	}
+
+	@Override
+	public double getScanTimeMeanMicros()
+	{
+		return this.scanTime.getMeanNanos() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getScanTimeP99Micros()
+	{
+		return this.scanTime.getPercentileNanos(0.99D) / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getScanTimeMaxMicros()
+	{
+		return this.scanTime.getMaxNanos() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getSaveTimeMeanMicros()
+	{
+		return this.saveTime.getMeanNanos() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getSaveTimeMaxMicros()
+	{
+		return this.saveTime.getMaxNanos() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getLoadTimeMeanMicros()
+	{
+		return this.loadTime.getMeanNanos() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getLoadTimeMaxMicros()
+	{
+		return this.loadTime.getMaxNanos() / NANOS_PER_MICRO;
+	}
+
+	/**
+	 * read from the latest network snapshot, so it is safe to call from the JMX thread
+	 */
+	@Override
+	public Map<Integer, Integer> getNetworkSizeByDimension()
+	{
+		TeleporterNetworkSnapshot snapshot = TeleporterNetwork.getLatestSnapshot();
+		Map<Integer, Integer> sizes = new HashMap<Integer, Integer>();
+		for (int dimension : snapshot.getDimensions())
+		{
+			sizes.put(dimension, snapshot.getNodes(dimension).size());
+		}
+		return sizes;
+	}
+
+	@Override
+	public void reset()
+	{
+		this.teleportAttempts.reset();
+		this.teleportSuccesses.reset();
+		this.teleportFailuresNoDestination.reset();
+		this.teleportFailuresTransfer.reset();
+		this.teleportFailuresBlocked.reset();
+		this.teleportFailuresDisabled.reset();
+		this.teleportFailuresDimensionPolicy.reset();
+		this.teleportFailuresFiltered.reset();
+		this.sameDimensionTeleports.reset();
+		this.crossDimensionTeleports.reset();
+		this.teleportTime.reset();
+		this.scans.reset();
+		this.nodesScanned.reset();
+		this.tileEntityLookups.reset();
+		this.chunkLoads.reset();
+		this.scanTime.reset();
+		this.saveTime.reset();
+		this.loadTime.reset();
+	}
+
+}
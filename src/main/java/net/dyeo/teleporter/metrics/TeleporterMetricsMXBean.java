@@ -0,0 +1,76 @@
+package net.dyeo.teleporter.metrics;
+
+import java.util.Map;
+
+/**
+ * the attributes and operations TeleporterMetrics exports over JMX. durations are in microseconds
+ *
+ */
+public interface TeleporterMetricsMXBean
+{
+
+	long getTeleportAttempts();
+
+	long getTeleportSuccesses();
+
+	long getTeleportFailuresNoDestination();
+
+	long getTeleportFailuresTransfer();
+
+	/**
+	 * the scans that found no destination after passing over obstructed teleporters
+	 */
+	long getTeleportFailuresBlocked();
+
+	/**
+	 * the scans that found no destination after passing over powered teleporters
+	 */
+	long getTeleportFailuresDisabled();
+
+	/**
+	 * the scans that found no destination after the dimension policy refused some teleporters
+	 */
+	long getTeleportFailuresDimensionPolicy();
+
+	/**
+	 * the entities on teleporters that the entity rules didn't let use them
+	 */
+	long getTeleportFailuresFiltered();
+
+	long getSameDimensionTeleports();
+
+	long getCrossDimensionTeleports();
+
+	double getTeleportTimeMeanMicros();
+
+	double getTeleportTimeP99Micros();
+
+	double getTeleportTimeMaxMicros();
+
+	long getScans();
+
+	long getNodesScanned();
+
+	long getTileEntityLookups();
+
+	long getChunkLoads();
+
+	double getScanTimeMeanMicros();
+
+	double getScanTimeP99Micros();
+
+	double getScanTimeMaxMicros();
+
+	double getSaveTimeMeanMicros();
+
+	double getSaveTimeMaxMicros();
+
+	double getLoadTimeMeanMicros();
+
+	double getLoadTimeMaxMicros();
+
+	Map<Integer, Integer> getNetworkSizeByDimension();
+
+	void reset();
+
+}
@@ -0,0 +1,262 @@
+package net.dyeo.teleporter.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+/**
+ * TeleporterProfiler attributes the time the server spends on teleporters to the teleporter responsible.
+ *
+ * every call is counted, but only one in {@link #SAMPLE_INTERVAL} calls to each teleporter is timed, using thread cpu
+ * time where the jvm supports it. counting per teleporter means the samples can't keep landing on the same teleporters
+ * because entities and teleporters are always visited in the same order, and a teleporter's first call is always
+ * timed. a teleporter without a timed call yet is costed at the average of every timed call.
+ *
+ * only the {@link #CAPACITY} most expensive teleporters are tracked: when a new teleporter shows up and the table is
+ * full it replaces the cheapest one and takes over its cost, so busy teleporters can't be pushed out by a stream of
+ * quiet ones. only used on the server thread.
+ */
+public class TeleporterProfiler
+{
+
+	private static final int SAMPLE_INTERVAL = 16;
+	private static final int CAPACITY = 64;
+
+	private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+	private static final boolean CPU_TIME_SUPPORTED = THREAD_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_BEAN.isThreadCpuTimeEnabled();
+
+	private static final Map<Integer, Map<BlockPos, Entry>> entries = new HashMap<Integer, Map<BlockPos, Entry>>();
+	private static int size = 0;
+
+	// every timed call since the last reset, for costing teleporters that haven't been timed themselves
+	private static long sampledCalls = 0;
+	private static long sampledNanos = 0;
+
+	private static int window = 0;
+	private static int windowStart = 0;
+
+
+	/**
+	 * starts timing a call for the teleporter at the given position, returning the time to pass to {@link #record}, or
+	 * -1 if this call isn't sampled
+	 */
+	public static long startSample(int dimension, BlockPos pos)
+	{
+		Map<BlockPos, Entry> dimensionEntries = entries.get(dimension);
+		Entry entry = (dimensionEntries != null ? dimensionEntries.get(pos) : null);
+		return (entry == null || entry.calls % SAMPLE_INTERVAL == 0) ? now() : -1L;
+	}
+
+	/**
+	 * records a call for the teleporter at the given position, and its cost if it was sampled
+	 */
+	public static void record(int dimension, BlockPos pos, long sampleStart)
+	{
+		Entry entry = getOrCreateEntry(dimension, pos);
+		entry.calls++;
+		if (sampleStart >= 0)
+		{
+			long nanos = now() - sampleStart;
+			entry.sampledCalls++;
+			entry.sampledNanos += nanos;
+			sampledCalls++;
+			sampledNanos += nanos;
+		}
+	}
+
+	/**
+	 * records an entity leaving from the teleporter at the given position
+	 */
+	public static void recordTeleport(int dimension, BlockPos pos)
+	{
+		getOrCreateEntry(dimension, pos).teleports++;
+	}
+
+	/**
+	 * gets up to count of the most expensive teleporters, most expensive first
+	 */
+	public static List<Entry> getTop(int count)
+	{
+		checkWindow();
+
+		List<Entry> top = new ArrayList<Entry>(size);
+		for (Map<BlockPos, Entry> dimensionEntries : entries.values())
+		{
+			top.addAll(dimensionEntries.values());
+		}
+		Collections.sort(top, new Comparator<Entry>()
+		{
+			@Override
+			public int compare(Entry a, Entry b)
+			{
+				return Double.compare(b.getEstimatedNanos(), a.getEstimatedNanos());
+			}
+		});
+		return top.size() > count ? top.subList(0, count) : top;
+	}
+
+	public static void reset()
+	{
+		entries.clear();
+		size = 0;
+		sampledCalls = 0;
+		sampledNanos = 0;
+		windowStart = getTickCounter();
+	}
+
+	/**
+	 * forgets everything recorded, for when the server stops
+	 */
+	public static void clear()
+	{
+		entries.clear();
+		size = 0;
+		sampledCalls = 0;
+		sampledNanos = 0;
+		windowStart = 0;
+	}
+
+	/**
+	 * sets how many seconds the costs are kept before they are reset, or 0 to keep them until reset by hand
+	 */
+	public static void setWindow(int seconds)
+	{
+		window = Math.max(0, seconds);
+		reset();
+	}
+
+	public static int getWindow()
+	{
+		return window;
+	}
+
+	/**
+	 * gets how many seconds of costs are currently recorded
+	 */
+	public static int getRecordedSeconds()
+	{
+		return (getTickCounter() - windowStart) / 20;
+	}
+
+
+	private static Entry getOrCreateEntry(int dimension, BlockPos pos)
+	{
+		checkWindow();
+
+		Map<BlockPos, Entry> dimensionEntries = entries.get(dimension);
+		if (dimensionEntries == null)
+		{
+			dimensionEntries = new HashMap<BlockPos, Entry>();
+			entries.put(dimension, dimensionEntries);
+		}
+
+		Entry entry = dimensionEntries.get(pos);
+		if (entry == null)
+		{
+			entry = new Entry(dimension, pos.toImmutable());
+			if (size >= CAPACITY)
+			{
+				// take over the cost of the cheapest entry, which errs on the side of overestimating newcomers
+				Entry cheapest = removeCheapestEntry();
+				entry.calls = cheapest.calls;
+				entry.sampledCalls = cheapest.sampledCalls;
+				entry.sampledNanos = cheapest.sampledNanos;
+			}
+			dimensionEntries.put(entry.pos, entry);
+			size++;
+		}
+		return entry;
+	}
+
+	private static Entry removeCheapestEntry()
+	{
+		Entry cheapest = null;
+		for (Map<BlockPos, Entry> dimensionEntries : entries.values())
+		{
+			for (Entry entry : dimensionEntries.values())
+			{
+				if (cheapest == null || entry.getEstimatedNanos() < cheapest.getEstimatedNanos()) cheapest = entry;
+			}
+		}
+
+		Map<BlockPos, Entry> dimensionEntries = entries.get(cheapest.dimension);
+		dimensionEntries.remove(cheapest.pos);
+		if (dimensionEntries.isEmpty()) entries.remove(cheapest.dimension);
+		size--;
+		return cheapest;
+	}
+
+	private static void checkWindow()
+	{
+		if (window > 0 && getTickCounter() - windowStart >= window * 20)
+		{
+			reset();
+		}
+	}
+
+	private static int getTickCounter()
+	{
+		return FMLCommonHandler.instance().getMinecraftServerInstance().getTickCounter();
+	}
+
+	private static long now()
+	{
+		return CPU_TIME_SUPPORTED ? THREAD_BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+	}
+
+
+
+	public static class Entry
+	{
+
+		public final int dimension;
+		public final BlockPos pos;
+
+		private long calls = 0;
+		private long teleports = 0;
+		private long sampledCalls = 0;
+		private long sampledNanos = 0;
+
+		private Entry(int dimension, BlockPos pos)
+		{
+			this.dimension = dimension;
+			this.pos = pos;
+		}
+
+		public long getCalls()
+		{
+			return this.calls;
+		}
+
+		public long getTeleports()
+		{
+			return this.teleports;
+		}
+
+		/**
+		 * the average time of this teleporter's timed calls, or of every timed call if none of its own were timed
+		 */
+		public double getAverageNanos()
+		{
+			if (this.sampledCalls > 0) return (double)this.sampledNanos / this.sampledCalls;
+			return TeleporterProfiler.sampledCalls > 0 ? (double)TeleporterProfiler.sampledNanos / TeleporterProfiler.sampledCalls : 0.0D;
+		}
+
+		/**
+		 * the estimated total time spent on this teleporter, from its average and call count
+		 */
+		public double getEstimatedNanos()
+		{
+			return this.getAverageNanos() * this.calls;
+		}
+
+	}
+
+}
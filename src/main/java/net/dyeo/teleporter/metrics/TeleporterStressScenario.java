@@ -0,0 +1,400 @@
+package net.dyeo.teleporter.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.capabilities.CapabilityTeleportHandler;
+import net.dyeo.teleporter.capabilities.EnumTeleportStatus;
+import net.dyeo.teleporter.capabilities.ITeleportHandler;
+import net.dyeo.teleporter.event.TeleportEvent;
+import net.dyeo.teleporter.init.ModBlocks;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.passive.EntityPig;
+import net.minecraft.init.Blocks;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.ForgeChunkManager;
+import net.minecraftforge.common.ForgeChunkManager.Ticket;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.entity.EntityJoinWorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * TeleporterStressScenario builds a grid of ender teleporters across the overworld and the nether, keeps a number of
+ * mobs stepping on and off them for a fixed time, and writes tick times, garbage collection and teleport throughput to
+ * a report file in the server directory, so builds can be compared under the same load.
+ *
+ * it is started with "/teleporter stress", or when the server starts with -Dteleporter.stress=pads,mobs,seconds.
+ * the mobs are real entities without ai, moved by the scenario and sent through the normal walk and teleport paths.
+ */
+public class TeleporterStressScenario
+{
+
+	public static final String SYSTEM_PROPERTY = "teleporter.stress";
+
+	// the limits on the arguments, however the scenario is started
+	public static final int MIN_PADS = 2;
+	public static final int MAX_PADS = 4096;
+	public static final int MIN_MOBS = 1;
+	public static final int MAX_MOBS = 4096;
+	public static final int MIN_SECONDS = 1;
+	public static final int MAX_SECONDS = 3600;
+
+	private static final String MOB_TAG = TeleporterMod.MODID + "_stress";
+	private static final int[] DIMENSIONS = { 0, -1 };
+	private static final int SPACING = 3;
+	private static final int GRID_Y = 200;
+
+	private static TeleporterStressScenario running = null;
+
+	private final MinecraftServer server;
+	private final ICommandSender sender;
+	private final int padCount;
+	private final int mobCount;
+	private final int durationTicks;
+
+	private final List<BlockPos> pads = new ArrayList<BlockPos>();
+	// the grid is laid out the same in every dimension
+	private final Set<BlockPos> padPositions = new HashSet<BlockPos>();
+	private final List<Integer> padDimensions = new ArrayList<Integer>();
+	private final List<Ticket> tickets = new ArrayList<Ticket>();
+	private final List<Entity> mobs = new ArrayList<Entity>();
+
+	private final long[] tickTimes;
+	private int ticks = 0;
+	private long tickStart = 0;
+
+	private long startTime;
+	private long startGcCount;
+	private long startGcTime;
+	private long startTeleports;
+	private long startScans;
+	private long startNodesScanned;
+
+
+	private TeleporterStressScenario(MinecraftServer server, @Nullable ICommandSender sender, int padCount, int mobCount, int seconds)
+	{
+		this.server = server;
+		this.sender = sender;
+		this.padCount = padCount;
+		this.mobCount = mobCount;
+		this.durationTicks = seconds * 20;
+		this.tickTimes = new long[this.durationTicks];
+	}
+
+
+	/**
+	 * starts a scenario, returning false if one is already running
+	 */
+	public static boolean start(MinecraftServer server, @Nullable ICommandSender sender, int padCount, int mobCount, int seconds)
+	{
+		if (running != null) return false;
+
+		running = new TeleporterStressScenario(server, sender, padCount, mobCount, seconds);
+		MinecraftForge.EVENT_BUS.register(running);
+		running.setUp();
+		return true;
+	}
+
+	/**
+	 * starts a scenario from the system property, if it is set
+	 */
+	public static void startFromSystemProperty(MinecraftServer server)
+	{
+		String property = System.getProperty(SYSTEM_PROPERTY);
+		if (property == null) return;
+
+		String[] values = property.split(",");
+		try
+		{
+			int pads = Integer.parseInt(values[0].trim());
+			int mobs = Integer.parseInt(values[1].trim());
+			int seconds = Integer.parseInt(values[2].trim());
+			if (pads >= MIN_PADS && pads <= MAX_PADS && mobs >= MIN_MOBS && mobs <= MAX_MOBS && seconds >= MIN_SECONDS && seconds <= MAX_SECONDS)
+			{
+				start(server, null, pads, mobs, seconds);
+				return;
+			}
+		}
+		catch (RuntimeException ex)
+		{
+		}
+		TeleporterMod.LOGGER.warn("Ignoring -D{}={}, expected pads ({}-{}),mobs ({}-{}),seconds ({}-{})", SYSTEM_PROPERTY, property, MIN_PADS, MAX_PADS, MIN_MOBS, MAX_MOBS, MIN_SECONDS, MAX_SECONDS);
+	}
+
+	public static boolean isRunning()
+	{
+		return running != null;
+	}
+
+
+	private void setUp()
+	{
+		WorldServer overworld = this.server.getWorld(0);
+		BlockPos spawn = overworld.getSpawnPoint();
+		int originX = (spawn.getX() >> 4) << 4;
+		int originZ = (spawn.getZ() >> 4) << 4;
+
+		// spread the pads evenly over the dimensions, in a square grid in each
+		int padsPerDimension = (this.padCount + DIMENSIONS.length - 1) / DIMENSIONS.length;
+		int columns = (int)Math.ceil(Math.sqrt(padsPerDimension));
+
+		List<BlockPos> overworldPads = new ArrayList<BlockPos>();
+		for (int d = 0; d < DIMENSIONS.length; ++d)
+		{
+			WorldServer world = this.server.getWorld(DIMENSIONS[d]);
+			List<BlockPos> dimensionPads = new ArrayList<BlockPos>();
+			Set<ChunkPos> chunks = new LinkedHashSet<ChunkPos>();
+
+			for (int index = 0; index * DIMENSIONS.length + d < this.padCount; ++index)
+			{
+				BlockPos pos = new BlockPos(originX + (index % columns) * SPACING, GRID_Y, originZ + (index / columns) * SPACING);
+				dimensionPads.add(pos);
+				chunks.add(new ChunkPos(pos));
+			}
+
+			// keep the grid loaded without any players nearby
+			this.forceChunks(world, chunks);
+
+			for (BlockPos pos : dimensionPads)
+			{
+				world.setBlockState(pos, ModBlocks.TELEPORTER.getDefaultState().withProperty(BlockTeleporter.TYPE, BlockTeleporter.EnumType.ENDER));
+				this.pads.add(pos);
+				this.padPositions.add(pos);
+				this.padDimensions.add(DIMENSIONS[d]);
+			}
+			if (DIMENSIONS[d] == 0) overworldPads.addAll(dimensionPads);
+		}
+
+		// the mobs start next to the overworld pads
+		for (int i = 0; i < this.mobCount && !overworldPads.isEmpty(); ++i)
+		{
+			BlockPos pad = overworldPads.get(i % overworldPads.size());
+			EntityPig mob = new EntityPig(overworld);
+			prepareMob(mob);
+			mob.setLocationAndAngles(pad.getX() + 1.5D, pad.getY(), pad.getZ() + 0.5D, 0.0F, 0.0F);
+			overworld.spawnEntity(mob);
+		}
+
+		this.startTime = System.nanoTime();
+		this.startGcCount = getGcCount();
+		this.startGcTime = getGcTime();
+		this.startTeleports = TeleporterMetrics.INSTANCE.getTeleportSuccesses();
+		this.startScans = TeleporterMetrics.INSTANCE.getScans();
+		this.startNodesScanned = TeleporterMetrics.INSTANCE.getNodesScanned();
+
+		TeleporterMod.LOGGER.info("Teleporter stress scenario started: {} pads, {} mobs, {} seconds", this.pads.size(), this.mobCount, this.durationTicks / 20);
+	}
+
+	private static void prepareMob(EntityPig mob)
+	{
+		mob.setNoAI(true);
+		mob.setEntityInvulnerable(true);
+		mob.setSilent(true);
+		mob.enablePersistence();
+		mob.addTag(MOB_TAG);
+	}
+
+	private void forceChunks(WorldServer world, Set<ChunkPos> chunks)
+	{
+		Ticket ticket = null;
+		int forced = 0;
+		for (ChunkPos chunk : chunks)
+		{
+			if (ticket == null || forced >= ticket.getMaxChunkListDepth())
+			{
+				ticket = ForgeChunkManager.requestTicket(TeleporterMod.instance, world, ForgeChunkManager.Type.NORMAL);
+				if (ticket == null)
+				{
+					TeleporterMod.LOGGER.warn("Out of chunk loading tickets, part of the stress grid may unload");
+					return;
+				}
+				this.tickets.add(ticket);
+				forced = 0;
+			}
+			ForgeChunkManager.forceChunk(ticket, chunk);
+			forced++;
+		}
+	}
+
+
+	@SubscribeEvent
+	public void onEntityJoinWorld(EntityJoinWorldEvent event)
+	{
+		if (!event.getWorld().isRemote && event.getEntity().getTags().contains(MOB_TAG))
+		{
+			this.mobs.add(event.getEntity());
+		}
+	}
+
+	@SubscribeEvent
+	public void onPostTransfer(TeleportEvent.PostTransferEvent event)
+	{
+		// mobs changing dimension arrive as new entities, which may not have kept the scenario's settings
+		Entity entity = event.getEntity();
+		if (event.hasSucceeded() && entity instanceof EntityPig && !entity.getTags().contains(MOB_TAG) && this.padPositions.contains(event.getSourceNode().pos))
+		{
+			prepareMob((EntityPig)entity);
+			this.mobs.add(entity);
+		}
+	}
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		if (event.phase == TickEvent.Phase.START)
+		{
+			this.tickStart = System.nanoTime();
+			return;
+		}
+
+		// the scenario may have started part way through a tick
+		if (this.tickStart == 0) return;
+
+		this.tickTimes[this.ticks++] = System.nanoTime() - this.tickStart;
+
+		for (int i = this.mobs.size() - 1; i >= 0; --i)
+		{
+			Entity mob = this.mobs.get(i);
+			if (mob.isDead) this.mobs.remove(i);
+			else this.step(mob);
+		}
+
+		if (this.ticks >= this.durationTicks)
+		{
+			this.finish();
+		}
+	}
+
+	/**
+	 * moves a mob that has arrived on a pad off it again, and a mob that is off a pad back onto it, as a player would
+	 */
+	private void step(Entity mob)
+	{
+		ITeleportHandler handler = mob.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
+		if (handler == null) return;
+
+		BlockPos below = new BlockPos(mob.posX, mob.posY - 0.5D, mob.posZ);
+		boolean onPad = mob.world.getBlockState(below).getBlock() instanceof BlockTeleporter;
+
+		if (onPad && (handler.getTeleportStatus() == EnumTeleportStatus.SUCCEEDED || handler.getTeleportStatus() == EnumTeleportStatus.FAILED))
+		{
+			mob.setPositionAndUpdate(below.getX() + 1.5D, below.getY() + 1.0D, below.getZ() + 0.5D);
+		}
+		else if (!onPad && handler.getTeleportStatus() == EnumTeleportStatus.INACTIVE)
+		{
+			BlockPos pad = new BlockPos(mob.posX - 1.0D, GRID_Y, mob.posZ);
+			if (mob.world.getBlockState(pad).getBlock() instanceof BlockTeleporter)
+			{
+				mob.setPositionAndUpdate(pad.getX() + 0.5D, pad.getY() + 1.0D, pad.getZ() + 0.5D);
+				mob.world.getBlockState(pad).getBlock().onEntityWalk(mob.world, pad, mob);
+			}
+		}
+	}
+
+	private void finish()
+	{
+		MinecraftForge.EVENT_BUS.unregister(this);
+		running = null;
+
+		double seconds = (System.nanoTime() - this.startTime) / 1.0e9D;
+		long teleports = TeleporterMetrics.INSTANCE.getTeleportSuccesses() - this.startTeleports;
+		long scans = TeleporterMetrics.INSTANCE.getScans() - this.startScans;
+		long nodesScanned = TeleporterMetrics.INSTANCE.getNodesScanned() - this.startNodesScanned;
+
+		long[] sorted = Arrays.copyOf(this.tickTimes, this.ticks);
+		Arrays.sort(sorted);
+		long total = 0;
+		for (long tickTime : sorted) total += tickTime;
+
+		File report = this.server.getFile("teleporter-stress-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".txt");
+		try (PrintWriter writer = new PrintWriter(report, "UTF-8"))
+		{
+			writer.println("version=" + TeleporterMod.VERSION);
+			writer.println("pads=" + this.pads.size());
+			writer.println("mobs=" + this.mobCount);
+			writer.println("seconds=" + String.format("%.1f", seconds));
+			writer.println("ticks=" + this.ticks);
+			writer.println("tickMeanMillis=" + String.format("%.3f", sorted.length > 0 ? total / (double)sorted.length / 1.0e6D : 0.0D));
+			writer.println("tickP99Millis=" + String.format("%.3f", sorted.length > 0 ? sorted[Math.min(sorted.length - 1, (int)Math.ceil(sorted.length * 0.99D) - 1)] / 1.0e6D : 0.0D));
+			writer.println("tickMaxMillis=" + String.format("%.3f", sorted.length > 0 ? sorted[sorted.length - 1] / 1.0e6D : 0.0D));
+			writer.println("gcCount=" + (getGcCount() - this.startGcCount));
+			writer.println("gcMillis=" + (getGcTime() - this.startGcTime));
+			writer.println("teleports=" + teleports);
+			writer.println("teleportsPerSecond=" + String.format("%.1f", teleports / seconds));
+			writer.println("meanScanLength=" + String.format("%.1f", scans > 0 ? nodesScanned / (double)scans : 0.0D));
+		}
+		catch (IOException ex)
+		{
+			TeleporterMod.LOGGER.warn("Unable to write the teleporter stress report", ex);
+		}
+
+		this.tearDown();
+
+		TeleporterMod.LOGGER.info("Teleporter stress scenario finished, report written to {}", report.getAbsolutePath());
+		if (this.sender != null)
+		{
+			this.sender.sendMessage(new TextComponentTranslation("commands.teleporter.stress.finished", report.getName()));
+		}
+	}
+
+	private void tearDown()
+	{
+		for (Entity mob : this.mobs)
+		{
+			mob.setDead();
+		}
+		this.mobs.clear();
+
+		for (int i = 0; i < this.pads.size(); ++i)
+		{
+			this.server.getWorld(this.padDimensions.get(i)).setBlockState(this.pads.get(i), Blocks.AIR.getDefaultState());
+		}
+
+		for (Ticket ticket : this.tickets)
+		{
+			ForgeChunkManager.releaseTicket(ticket);
+		}
+		this.tickets.clear();
+	}
+
+
+	private static long getGcCount()
+	{
+		long count = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long getGcTime()
+	{
+		long time = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			time += Math.max(0, bean.getCollectionTime());
+		}
+		return time;
+	}
+
+}
@@ -0,0 +1,364 @@
+package net.dyeo.teleporter.metrics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.common.config.ModConfiguration;
+import net.dyeo.teleporter.teleport.TeleporterEntityFilter;
+import net.dyeo.teleporter.teleport.TeleporterNetwork;
+import net.dyeo.teleporter.teleport.TeleporterNetworkSnapshot;
+import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityList;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+/**
+ * TeleporterTrace records every teleport attempt to a binary trace file, for replaying real traffic offline with
+ * {@link TeleporterTraceReplay}.
+ *
+ * the server thread only queues a small record per attempt; a background thread encodes and writes them. if the writer
+ * falls behind, records are dropped rather than holding up the server. a new file is started once the current one
+ * reaches traceFileSize, and only the newest {@link #MAX_FILES} files are kept.
+ *
+ * each file stands on its own: it starts with the dimension rules, and the network is written out before the first
+ * record and again whenever it changes, so a file can be replayed without the world it was recorded on.
+ */
+public class TeleporterTrace
+{
+
+	static final int MAGIC = 0x54505452;
+	static final int VERSION = 1;
+
+	static final byte TAG_NETWORK = 1;
+	static final byte TAG_ENTITY_TYPE = 2;
+	static final byte TAG_TELEPORT = 3;
+
+	static final byte OUTCOME_NO_DESTINATION = 0;
+	static final byte OUTCOME_SUCCEEDED = 1;
+	static final byte OUTCOME_FAILED = 2;
+
+	private static final String DIRECTORY = "teleporter-traces";
+	private static final int MAX_FILES = 4;
+	private static final int QUEUE_CAPACITY = 8192;
+
+	private static final LongAdder dropped = new LongAdder();
+
+	private static volatile Writer writer = null;
+
+	// the scan of the teleport being recorded, only touched on the server thread
+	private static int pendingScanLength = 0;
+	private static long pendingScanNanos = 0L;
+
+
+	/**
+	 * starts recording into the given directory's trace folder, if traceTeleports is enabled
+	 */
+	public static synchronized void start(File serverDirectory)
+	{
+		if (!ModConfiguration.traceTeleports || writer != null) return;
+
+		File directory = new File(serverDirectory, DIRECTORY);
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			TeleporterMod.LOGGER.warn("Unable to create the teleport trace directory {}", directory);
+			return;
+		}
+
+		writer = new Writer(directory, ModConfiguration.traceFileSize * 1024L * 1024L);
+		writer.start();
+		TeleporterMod.LOGGER.info("Recording teleports to {}", directory);
+	}
+
+	/**
+	 * stops recording, writing out everything queued so far
+	 */
+	public static synchronized void stop()
+	{
+		Writer stopping = writer;
+		if (stopping == null) return;
+
+		writer = null;
+		stopping.running = false;
+		try
+		{
+			stopping.join(TimeUnit.SECONDS.toMillis(5));
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		long droppedRecords = dropped.sumThenReset();
+		if (droppedRecords > 0) TeleporterMod.LOGGER.warn("{} teleports were not recorded because the trace writer fell behind", droppedRecords);
+	}
+
+	public static boolean isRecording()
+	{
+		return writer != null;
+	}
+
+
+	/**
+	 * remembers the scan that found the destination of the next teleport to be recorded
+	 */
+	public static void recordScan(int scanLength, long nanos)
+	{
+		if (writer == null) return;
+
+		pendingScanLength = scanLength;
+		pendingScanNanos = nanos;
+	}
+
+	/**
+	 * queues a record of a teleport attempt. attempts whose destination wasn't found by a scan, such as the rest of an
+	 * area teleport or a destination resolved off the server thread, are recorded with a scan length of 0
+	 */
+	public static void recordTeleport(Entity entity, TeleporterNode sourceNode, @Nullable TeleporterNode destinationNode, boolean succeeded, long nanos)
+	{
+		Writer currentWriter = writer;
+		if (currentWriter == null || sourceNode == null) return;
+
+		byte outcome = (destinationNode == null ? OUTCOME_NO_DESTINATION : (succeeded ? OUTCOME_SUCCEEDED : OUTCOME_FAILED));
+		Record record = new Record(
+			FMLCommonHandler.instance().getMinecraftServerInstance().getTickCounter(), getEntityType(entity), TeleporterEntityFilter.getCategory(entity),
+			sourceNode, destinationNode, outcome, pendingScanLength, pendingScanNanos, nanos, TeleporterNetwork.getLatestSnapshot()
+		);
+		pendingScanLength = 0;
+		pendingScanNanos = 0L;
+
+		if (!currentWriter.queue.offer(record)) dropped.increment();
+	}
+
+	private static String getEntityType(Entity entity)
+	{
+		if (entity instanceof EntityPlayer) return "player";
+		ResourceLocation key = EntityList.getKey(entity);
+		return key != null ? key.toString() : entity.getClass().getName();
+	}
+
+
+
+	private static class Record
+	{
+
+		private final int tick;
+		private final String entityType;
+		private final int category;
+		private final TeleporterNode sourceNode;
+		private final TeleporterNode destinationNode;
+		private final byte outcome;
+		private final int scanLength;
+		private final long scanNanos;
+		private final long nanos;
+		private final TeleporterNetworkSnapshot snapshot;
+
+		private Record(int tick, String entityType, int category, TeleporterNode sourceNode, TeleporterNode destinationNode, byte outcome, int scanLength, long scanNanos, long nanos, TeleporterNetworkSnapshot snapshot)
+		{
+			this.tick = tick;
+			this.entityType = entityType;
+			this.category = category;
+			this.sourceNode = sourceNode;
+			this.destinationNode = destinationNode;
+			this.outcome = outcome;
+			this.scanLength = scanLength;
+			this.scanNanos = scanNanos;
+			this.nanos = nanos;
+			this.snapshot = snapshot;
+		}
+
+	}
+
+
+
+	private static class Writer extends Thread
+	{
+
+		private final BlockingQueue<Record> queue = new ArrayBlockingQueue<Record>(QUEUE_CAPACITY);
+		private final File directory;
+		private final long maxFileSize;
+
+		private volatile boolean running = true;
+
+		// the state of the current file
+		private DataOutputStream output = null;
+		private long generation = -1L;
+		private final Map<String, Integer> entityTypes = new HashMap<String, Integer>();
+
+		private Writer(File directory, long maxFileSize)
+		{
+			super("Teleporter Trace Writer");
+			this.setDaemon(true);
+			this.directory = directory;
+			this.maxFileSize = Math.max(maxFileSize, 64 * 1024L);
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				while (this.running || !this.queue.isEmpty())
+				{
+					Record record = this.queue.poll(1, TimeUnit.SECONDS);
+					if (record != null)
+					{
+						this.write(record);
+					}
+					else if (this.output != null)
+					{
+						// nothing is happening, make sure what has been recorded so far is on disk
+						this.output.flush();
+					}
+				}
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (IOException ex)
+			{
+				TeleporterMod.LOGGER.warn("Stopped recording teleports, the trace could not be written", ex);
+				writer = null;
+			}
+			finally
+			{
+				this.closeFile();
+			}
+		}
+
+		private void write(Record record) throws IOException
+		{
+			if (this.output == null || this.output.size() >= this.maxFileSize)
+			{
+				this.openFile();
+			}
+
+			// the network is only written when it has changed since the last record
+			if (record.snapshot.getGeneration() != this.generation)
+			{
+				this.writeNetwork(record.snapshot);
+			}
+
+			Integer entityType = this.entityTypes.get(record.entityType);
+			if (entityType == null)
+			{
+				entityType = this.entityTypes.size();
+				this.entityTypes.put(record.entityType, entityType);
+				this.output.writeByte(TAG_ENTITY_TYPE);
+				this.output.writeShort(entityType);
+				this.output.writeUTF(record.entityType);
+			}
+
+			this.output.writeByte(TAG_TELEPORT);
+			this.output.writeInt(record.tick);
+			this.output.writeShort(entityType);
+			this.output.writeByte(record.category);
+			this.output.writeInt(record.sourceNode.dimension);
+			this.output.writeLong(record.sourceNode.pos.toLong());
+			this.output.writeByte(record.outcome);
+			if (record.destinationNode != null)
+			{
+				this.output.writeInt(record.destinationNode.dimension);
+				this.output.writeLong(record.destinationNode.pos.toLong());
+			}
+			this.output.writeInt(record.scanLength);
+			this.output.writeLong(record.scanNanos);
+			this.output.writeLong(record.nanos);
+		}
+
+		private void writeNetwork(TeleporterNetworkSnapshot snapshot) throws IOException
+		{
+			this.output.writeByte(TAG_NETWORK);
+			this.output.writeLong(snapshot.getGeneration());
+			this.output.writeInt(snapshot.size());
+			for (TeleporterNode node : snapshot.getNodes())
+			{
+				this.output.writeInt(node.dimension);
+				this.output.writeLong(node.pos.toLong());
+				this.output.writeByte(node.type.ordinal());
+				this.output.writeBoolean(node.owner != null);
+				if (node.owner != null)
+				{
+					this.output.writeLong(node.owner.getMostSignificantBits());
+					this.output.writeLong(node.owner.getLeastSignificantBits());
+				}
+			}
+			this.generation = snapshot.getGeneration();
+		}
+
+		private void openFile() throws IOException
+		{
+			this.closeFile();
+			this.deleteOldFiles();
+
+			File file = new File(this.directory, "trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + ".bin");
+			this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+			this.output.writeInt(MAGIC);
+			this.output.writeShort(VERSION);
+			this.output.writeShort(ModConfiguration.dimensionRules.length);
+			for (String rule : ModConfiguration.dimensionRules)
+			{
+				this.output.writeUTF(rule);
+			}
+
+			// a new file starts with no network and no entity types
+			this.generation = -1L;
+			this.entityTypes.clear();
+		}
+
+		private void closeFile()
+		{
+			if (this.output == null) return;
+			try
+			{
+				this.output.close();
+			}
+			catch (IOException ex)
+			{
+				TeleporterMod.LOGGER.warn("Unable to close the teleport trace", ex);
+			}
+			this.output = null;
+		}
+
+		/**
+		 * deletes the oldest trace files, leaving room for the one about to be opened
+		 */
+		private void deleteOldFiles()
+		{
+			File[] files = this.directory.listFiles(new FilenameFilter()
+			{
+				@Override
+				public boolean accept(File dir, String name)
+				{
+					return name.startsWith("trace-") && name.endsWith(".bin");
+				}
+			});
+			if (files == null || files.length < MAX_FILES) return;
+
+			// the timestamped names sort oldest first
+			Arrays.sort(files);
+			for (int i = 0; i <= files.length - MAX_FILES; ++i)
+			{
+				if (!files[i].delete()) TeleporterMod.LOGGER.warn("Unable to delete the old teleport trace {}", files[i]);
+			}
+		}
+
+	}
+
+}
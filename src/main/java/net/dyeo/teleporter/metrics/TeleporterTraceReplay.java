@@ -0,0 +1,305 @@
+package net.dyeo.teleporter.metrics;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.teleport.TeleporterDimensionPolicy;
+import net.dyeo.teleporter.teleport.TeleporterNetwork;
+import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.dyeo.teleporter.teleport.TeleporterWorldAccess;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * TeleporterTraceReplay replays a trace written by {@link TeleporterTrace} against the networks recorded in it, and
+ * reports how long the destination scans take, so changes to the scan can be measured against real traffic.
+ *
+ * each recorded network is loaded into a {@link TeleporterNetwork}, and each teleport is replayed through the same
+ * {@link TeleporterNetwork#findDestination} walk a live scan makes. whether a candidate's key, obstruction and power let
+ * it through can't be known without the world, so the replay stands in for the worlds with one in which every key
+ * matches and every candidate but the recorded destination is obstructed. the scan lengths it finds are checked against
+ * the recorded ones, which tells whether the network order and rules behave as recorded.
+ *
+ * run it with the mod and minecraft on the classpath:
+ * java net.dyeo.teleporter.metrics.TeleporterTraceReplay &lt;trace file&gt; [passes]
+ */
+public class TeleporterTraceReplay
+{
+
+	private static final int DEFAULT_PASSES = 5;
+
+	private final List<Teleport> teleports = new ArrayList<Teleport>();
+	private final LatencyHistogram recordedScanTime = new LatencyHistogram();
+	private final LatencyHistogram recordedTeleportTime = new LatencyHistogram();
+	private final ReplayWorldAccess worlds = new ReplayWorldAccess();
+	private int skipped = 0;
+
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: TeleporterTraceReplay <trace file> [passes]");
+			System.exit(1);
+		}
+
+		int passes = (args.length > 1 ? Math.max(2, Integer.parseInt(args[1])) : DEFAULT_PASSES);
+
+		TeleporterTraceReplay replay = new TeleporterTraceReplay();
+		replay.read(new File(args[0]));
+		replay.run(passes);
+	}
+
+
+	private void read(File file) throws IOException
+	{
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+		try
+		{
+			if (input.readInt() != TeleporterTrace.MAGIC) throw new IOException(file + " is not a teleport trace");
+			int version = input.readUnsignedShort();
+			if (version != TeleporterTrace.VERSION) throw new IOException(file + " is a version " + version + " trace, only version " + TeleporterTrace.VERSION + " is supported");
+
+			String[] dimensionRules = new String[input.readUnsignedShort()];
+			for (int i = 0; i < dimensionRules.length; ++i)
+			{
+				dimensionRules[i] = input.readUTF();
+			}
+			TeleporterDimensionPolicy.compile(dimensionRules);
+
+			TeleporterNetwork network = null;
+			int tag;
+			while ((tag = input.read()) >= 0)
+			{
+				if (tag == TeleporterTrace.TAG_NETWORK)
+				{
+					network = readNetwork(input);
+				}
+				else if (tag == TeleporterTrace.TAG_ENTITY_TYPE)
+				{
+					// the scan doesn't depend on the entity type, only on its category
+					input.readUnsignedShort();
+					input.readUTF();
+				}
+				else if (tag == TeleporterTrace.TAG_TELEPORT)
+				{
+					this.readTeleport(input, network);
+				}
+				else
+				{
+					throw new IOException("Unknown record " + tag + " in " + file);
+				}
+			}
+		}
+		catch (EOFException ex)
+		{
+			// the server may have stopped part way through writing a record
+			System.err.println("The trace ends part way through a record, the rest of it is ignored");
+		}
+		finally
+		{
+			input.close();
+		}
+	}
+
+	private TeleporterNetwork readNetwork(DataInputStream input) throws IOException
+	{
+		input.readLong(); // generation
+		int count = input.readInt();
+
+		// the trace lists each network's nodes in the order it walks them. loading them as a saved network keeps that
+		// order, where queueing them would group them by dimension
+		NBTTagList netNBT = new NBTTagList();
+		for (int i = 0; i < count; ++i)
+		{
+			int dimension = input.readInt();
+			BlockPos pos = BlockPos.fromLong(input.readLong());
+			BlockTeleporter.EnumType type = BlockTeleporter.EnumType.byMetadata(input.readUnsignedByte());
+			UUID owner = (input.readBoolean() ? new UUID(input.readLong(), input.readLong()) : null);
+			netNBT.appendTag(new TeleporterNode(pos, dimension, type, owner).writeToNBT(new NBTTagCompound()));
+		}
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setTag("Network", netNBT);
+
+		TeleporterNetwork network = new TeleporterNetwork();
+		network.readFromNBT(nbt);
+		network.setWorldAccess(this.worlds);
+		return network;
+	}
+
+	private void readTeleport(DataInputStream input, TeleporterNetwork network) throws IOException
+	{
+		input.readInt(); // tick
+		input.readUnsignedShort(); // entity type
+		int category = input.readUnsignedByte();
+		TeleporterNode sourceNode = getNode(network, input.readInt(), input.readLong());
+		byte outcome = input.readByte();
+		TeleporterNode destinationNode = null;
+		if (outcome != TeleporterTrace.OUTCOME_NO_DESTINATION)
+		{
+			int dimension = input.readInt();
+			long pos = input.readLong();
+			destinationNode = getNode(network, dimension, pos);
+		}
+		int scanLength = input.readInt();
+		long scanNanos = input.readLong();
+		long nanos = input.readLong();
+
+		this.recordedTeleportTime.record(nanos);
+
+		// only teleports that scanned for their destination can be replayed
+		if (scanLength == 0) return;
+		if (sourceNode == null || (outcome != TeleporterTrace.OUTCOME_NO_DESTINATION && destinationNode == null))
+		{
+			++this.skipped;
+			return;
+		}
+
+		this.recordedScanTime.record(scanNanos);
+		this.teleports.add(new Teleport(network, sourceNode, destinationNode, category, scanLength));
+	}
+
+	@Nullable
+	private static TeleporterNode getNode(@Nullable TeleporterNetwork network, int dimension, long pos)
+	{
+		return network != null ? network.getNode(BlockPos.fromLong(pos), dimension) : null;
+	}
+
+
+	private void run(int passes)
+	{
+		Set<Integer> dimensions = new HashSet<Integer>();
+		for (Teleport teleport : this.teleports)
+		{
+			dimensions.addAll(teleport.network.getSnapshot().getDimensions());
+		}
+		TeleporterDimensionPolicy.rebuild(dimensions.toArray(new Integer[dimensions.size()]));
+
+		LatencyHistogram replayTime = new LatencyHistogram();
+		long scanned = 0;
+		long rejected = 0;
+		int mismatches = 0;
+
+		// the first pass only warms up the jit
+		for (int pass = 0; pass < passes; ++pass)
+		{
+			for (Teleport teleport : this.teleports)
+			{
+				this.worlds.destinationNode = teleport.destinationNode;
+
+				long startTime = System.nanoTime();
+				teleport.network.findDestination(teleport.sourceNode, ItemStack.EMPTY, teleport.category, null);
+				long replayNanos = System.nanoTime() - startTime;
+
+				TeleporterNetwork.Scan scan = teleport.network.getLastScan();
+				if (pass == passes - 1)
+				{
+					scanned += scan.getLength();
+					rejected += scan.getBlocked();
+					if (scan.getLength() != teleport.scanLength) ++mismatches;
+				}
+				if (pass > 0) replayTime.record(replayNanos);
+			}
+		}
+
+		int count = this.teleports.size();
+		System.out.println("teleports=" + this.recordedTeleportTime.getCount());
+		System.out.println("replayed=" + count);
+		System.out.println("skipped=" + this.skipped);
+		System.out.println("passes=" + (passes - 1));
+		System.out.println("meanScanLength=" + (count > 0 ? String.format(Locale.ROOT, "%.2f", (double)scanned / count) : "0"));
+		System.out.println("meanCandidatesRejectedByWorld=" + (count > 0 ? String.format(Locale.ROOT, "%.2f", (double)rejected / count) : "0"));
+		System.out.println("scanLengthMismatches=" + mismatches);
+		System.out.println("recordedTeleportMeanMicros=" + toMicros(this.recordedTeleportTime.getMeanNanos()));
+		System.out.println("recordedTeleportP99Micros=" + toMicros(this.recordedTeleportTime.getPercentileNanos(0.99D)));
+		System.out.println("recordedScanMeanMicros=" + toMicros(this.recordedScanTime.getMeanNanos()));
+		System.out.println("recordedScanP99Micros=" + toMicros(this.recordedScanTime.getPercentileNanos(0.99D)));
+		System.out.println("replayScanMeanMicros=" + toMicros(replayTime.getMeanNanos()));
+		System.out.println("replayScanP99Micros=" + toMicros(replayTime.getPercentileNanos(0.99D)));
+		System.out.println("replayScanMaxMicros=" + toMicros(replayTime.getMaxNanos()));
+	}
+
+	private static String toMicros(double nanos)
+	{
+		return String.format(Locale.ROOT, "%.2f", nanos / 1000.0D);
+	}
+
+
+
+	/**
+	 * stands in for the worlds of a recorded network: every dimension is loaded, every teleporter has the same key and
+	 * isn't powered, and every candidate but the recorded destination is obstructed
+	 */
+	private static class ReplayWorldAccess implements TeleporterWorldAccess
+	{
+
+		private TeleporterNode destinationNode = null;
+
+		@Override
+		public boolean isLoaded(int dimension)
+		{
+			return true;
+		}
+
+		@Override
+		public boolean load(int dimension)
+		{
+			return true;
+		}
+
+		@Override
+		public ItemStack getKey(TeleporterNode node)
+		{
+			return ItemStack.EMPTY;
+		}
+
+		@Override
+		public boolean isObstructed(TeleporterNode node)
+		{
+			return node != this.destinationNode;
+		}
+
+		@Override
+		public boolean isPowered(TeleporterNode node)
+		{
+			return false;
+		}
+
+	}
+
+
+
+	private static class Teleport
+	{
+
+		private final TeleporterNetwork network;
+		private final TeleporterNode sourceNode;
+		private final TeleporterNode destinationNode;
+		private final int category;
+		private final int scanLength;
+
+		private Teleport(TeleporterNetwork network, TeleporterNode sourceNode, TeleporterNode destinationNode, int category, int scanLength)
+		{
+			this.network = network;
+			this.sourceNode = sourceNode;
+			this.destinationNode = destinationNode;
+			this.category = category;
+			this.scanLength = scanLength;
+		}
+
+	}
+
+}
@@ -1,8 +1,34 @@
 package net.dyeo.teleporter.proxy;
 
+import java.util.Random;
+import net.dyeo.teleporter.client.TeleporterNetworkMirror;
+import net.dyeo.teleporter.client.gui.inventory.GuiTeleporter;
+import net.dyeo.teleporter.client.renderer.tileentity.TileEntityTeleporterRenderer;
+import net.dyeo.teleporter.common.network.MessageDestinationPage;
+import net.dyeo.teleporter.common.network.MessageNetworkResync;
+import net.dyeo.teleporter.common.network.MessageNetworkSync;
+import net.dyeo.teleporter.common.network.MessageTeleportEffects;
+import net.dyeo.teleporter.common.network.PacketHandler;
+import net.dyeo.teleporter.init.ModSounds;
+import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.WorldClient;
+import net.minecraft.util.EnumParticleTypes;
+import net.minecraft.util.SoundCategory;
+import net.minecraft.util.SoundEvent;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fml.client.registry.ClientRegistry;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.network.FMLNetworkEvent;
+
 public class ClientProxy extends CommonProxy
 {
 
+	private static final int PARTICLES_PER_TELEPORT = 16;
+	private static final int MAX_PARTICLE_TELEPORTS = 4;
+
+
 	@Override
 	public void preInit()
 	{
@@ -13,6 +39,8 @@ public class ClientProxy extends CommonProxy
 	public void init()
 	{
 		super.init();
+		MinecraftForge.EVENT_BUS.register(this);
+		ClientRegistry.bindTileEntitySpecialRenderer(TileEntityTeleporter.class, new TileEntityTeleporterRenderer());
 	}
 
 	@Override
@@ -21,4 +49,98 @@ public class ClientProxy extends CommonProxy
 		super.postInit();
 	}
 
+
+	@Override
+	public void handleTeleportEffects(final MessageTeleportEffects message)
+	{
+		final Minecraft minecraft = Minecraft.getMinecraft();
+		minecraft.addScheduledTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				WorldClient world = minecraft.world;
+				if (world == null) return;
+
+				int dimension = world.provider.getDimension();
+				int particles = Math.min(message.getCount(), MAX_PARTICLE_TELEPORTS) * PARTICLES_PER_TELEPORT;
+
+				if (message.isForSource() && message.getSourceDimension() == dimension)
+				{
+					playEffects(world, message.getSourcePos(), message.getSucceeded() ? ModSounds.PORTAL_ENTER : ModSounds.PORTAL_ERROR, particles);
+				}
+				if (message.isForDestination() && message.getSucceeded() && message.hasDestination() && message.getDestinationDimension() == dimension)
+				{
+					playEffects(world, message.getDestinationPos(), ModSounds.PORTAL_EXIT, particles);
+				}
+			}
+		});
+	}
+
+	@Override
+	public void handleNetworkSync(final MessageNetworkSync message)
+	{
+		Minecraft.getMinecraft().addScheduledTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (!TeleporterNetworkMirror.apply(message))
+				{
+					PacketHandler.INSTANCE.sendToServer(new MessageNetworkResync());
+				}
+			}
+		});
+	}
+
+	@Override
+	public void handleDestinationPage(final MessageDestinationPage message)
+	{
+		final Minecraft minecraft = Minecraft.getMinecraft();
+		minecraft.addScheduledTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				// the player may have closed the gui while the page was on its way
+				if (minecraft.currentScreen instanceof GuiTeleporter)
+				{
+					((GuiTeleporter)minecraft.currentScreen).setDestinationPage(message);
+				}
+			}
+		});
+	}
+
+	@SubscribeEvent
+	public void onClientDisconnection(FMLNetworkEvent.ClientDisconnectionFromServerEvent event)
+	{
+		Minecraft.getMinecraft().addScheduledTask(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				TeleporterNetworkMirror.clear();
+			}
+		});
+	}
+
+	private static void playEffects(WorldClient world, BlockPos pos, SoundEvent sound, int particles)
+	{
+		if (sound != null)
+		{
+			world.playSound(pos.getX(), pos.getY(), pos.getZ(), sound, SoundCategory.BLOCKS, 0.9f, 1.0f, false);
+		}
+
+		Random rand = world.rand;
+		for (int i = 0; i < particles; ++i)
+		{
+			world.spawnParticle(EnumParticleTypes.PORTAL,
+				pos.getX() + 0.5 + (rand.nextDouble() - 0.5) * 0.5,
+				pos.getY() + 1.0 + rand.nextDouble() * 2.0,
+				pos.getZ() + 0.5 + (rand.nextDouble() - 0.5) * 0.5,
+				(rand.nextDouble() - 0.5) * 2.0, -rand.nextDouble(), (rand.nextDouble() - 0.5) * 2.0
+			);
+		}
+	}
+
 }
@@ -3,6 +3,10 @@ package net.dyeo.teleporter.proxy;
 import net.dyeo.teleporter.TeleporterMod;
 import net.dyeo.teleporter.capabilities.CapabilityTeleportHandler;
 import net.dyeo.teleporter.common.network.GuiHandler;
+import net.dyeo.teleporter.common.network.MessageDestinationPage;
+import net.dyeo.teleporter.common.network.MessageNetworkSync;
+import net.dyeo.teleporter.common.network.MessageTeleportEffects;
+import net.dyeo.teleporter.common.network.PacketHandler;
 import net.dyeo.teleporter.init.ModBlocks;
 import net.dyeo.teleporter.init.ModSounds;
 import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
@@ -16,6 +20,7 @@ public class CommonProxy
 	{
 		this.registerSounds();
 		this.registerTileEntities();
+		this.registerNetworkMessages();
 	}
 
 	public void init()
@@ -30,6 +35,19 @@ public class CommonProxy
 	}
 
 
+	public void handleTeleportEffects(MessageTeleportEffects message)
+	{
+	}
+
+	public void handleNetworkSync(MessageNetworkSync message)
+	{
+	}
+
+	public void handleDestinationPage(MessageDestinationPage message)
+	{
+	}
+
+
 	private void registerCapabilities()
 	{
 		CapabilityTeleportHandler.registerCapabilities();
@@ -45,6 +63,11 @@ public class CommonProxy
 		NetworkRegistry.INSTANCE.registerGuiHandler(TeleporterMod.instance, new GuiHandler());
 	}
 
+	private void registerNetworkMessages()
+	{
+		PacketHandler.registerMessages();
+	}
+
 	private void registerSounds()
 	{
 		ModSounds.registerSounds();
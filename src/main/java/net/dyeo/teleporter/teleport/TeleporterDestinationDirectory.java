@@ -0,0 +1,250 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import com.google.common.collect.ImmutableList;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.common.network.MessageDestinationPage;
+import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.items.CapabilityItemHandler;
+
+/**
+ * TeleporterDestinationDirectory lists the destinations a teleporter can send a player to, for the destination panel
+ * of the teleporter gui.
+ *
+ * the teleporters on a channel, that is with the same type, owner, dimension and key, are looked up once and cached
+ * until the owner's part of the network changes or a teleporter joins or leaves the channel, so players browsing the
+ * panel don't each scan the network. channels whose part of the network has changed are dropped whenever a channel is
+ * built, so they don't keep old snapshots alive. channels are built from the network snapshot and the last recorded
+ * key of each teleporter, so no chunks are loaded to build them, and teleporters that haven't been loaded since the
+ * server started are left out. only the status of the destinations on the page being sent is checked live, and only in chunks that
+ * are already loaded.
+ */
+public class TeleporterDestinationDirectory
+{
+
+	public static final int PAGE_SIZE = 6;
+
+	private static final int PLAYER_CATEGORY = TeleporterEntityFilter.CATEGORIES.indexOf("player");
+
+	private static final Map<Channel, CachedChannel> channels = new HashMap<Channel, CachedChannel>();
+
+
+	/**
+	 * gets a page of the destinations of the teleporter, in the order they would be tried, starting after the teleporter
+	 */
+	public static MessageDestinationPage getPage(TileEntityTeleporter tileEntity, int page)
+	{
+		TeleporterNetwork network = TeleporterNetwork.get(tileEntity.getWorld());
+		TeleporterNode sourceNode = network.getNode(tileEntity.getPos(), tileEntity.getWorld().provider.getDimension());
+		if (sourceNode == null) return new MessageDestinationPage(0, 1, new ArrayList<MessageDestinationPage.Entry>());
+
+		ItemStack sourceKey = tileEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null).getStackInSlot(0);
+		List<Destination> destinations = getDestinations(network.getSnapshot(), sourceNode, sourceKey);
+
+		// start after the source, so the first ready destination is the one the teleporter leads to
+		int sourceIndex = -1;
+		for (int i = 0; i < destinations.size(); ++i)
+		{
+			if (destinations.get(i).node == sourceNode) sourceIndex = i;
+		}
+
+		List<Destination> allowed = new ArrayList<Destination>(destinations.size());
+		for (int i = 0; i < destinations.size(); ++i)
+		{
+			Destination destination = destinations.get((sourceIndex + 1 + i) % destinations.size());
+			if (TeleporterNetwork.isCandidate(sourceNode, destination.node, PLAYER_CATEGORY))
+			{
+				allowed.add(destination);
+			}
+		}
+
+		int pageCount = Math.max(1, (allowed.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+		page = Math.max(0, Math.min(page, pageCount - 1));
+
+		List<MessageDestinationPage.Entry> entries = new ArrayList<MessageDestinationPage.Entry>(PAGE_SIZE);
+		for (int i = page * PAGE_SIZE; i < Math.min((page + 1) * PAGE_SIZE, allowed.size()); ++i)
+		{
+			Destination destination = allowed.get(i);
+			entries.add(new MessageDestinationPage.Entry(destination.node.pos, destination.node.dimension, destination.name, getStatus(network, destination.node)));
+		}
+		return new MessageDestinationPage(page, pageCount, entries);
+	}
+
+	/**
+	 * forgets the cached channels the teleporter is leaving or joining, if its key or name is different to the ones last
+	 * recorded for it. called on the server thread before the teleporter's state is recorded again
+	 */
+	public static void invalidate(TileEntityTeleporter tileEntity)
+	{
+		if (channels.isEmpty()) return;
+
+		BlockPos pos = tileEntity.getPos();
+		TeleporterResolver.MirroredState state = TeleporterResolver.getState(pos, tileEntity.getWorld().provider.getDimension());
+		ItemStack key = tileEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null).getStackInSlot(0);
+		String name = (tileEntity.hasCustomName() ? tileEntity.getName() : null);
+		if (state != null && Channel.areKeysEqual(state.key, key) && Objects.equals(state.name, name)) return;
+
+		Iterator<Channel> iterator = channels.keySet().iterator();
+		while (iterator.hasNext())
+		{
+			Channel channel = iterator.next();
+			if (!Objects.equals(channel.owner, tileEntity.getOwner())) continue;
+
+			if (TeleporterNetwork.doKeyStacksMatch(channel.key, key) || (state != null && TeleporterNetwork.doKeyStacksMatch(channel.key, state.key)))
+			{
+				iterator.remove();
+			}
+		}
+	}
+
+	public static void clear()
+	{
+		channels.clear();
+	}
+
+
+	private static List<Destination> getDestinations(TeleporterNetworkSnapshot snapshot, TeleporterNode sourceNode, ItemStack sourceKey)
+	{
+		ImmutableList<TeleporterNode> partition = snapshot.getPartition(sourceNode.owner);
+
+		// a channel is only good for as long as the partition it was built from
+		Channel channel = new Channel(sourceNode, sourceKey);
+		CachedChannel cachedChannel = channels.get(channel);
+		if (cachedChannel == null || cachedChannel.partition != partition)
+		{
+			evictStaleChannels(snapshot);
+
+			List<Destination> destinations = new ArrayList<Destination>();
+			for (TeleporterNode node : partition)
+			{
+				// the source is kept in the channel, the other teleporters on it lead to it
+				if (node != sourceNode && !TeleporterNetwork.isCandidate(sourceNode, node, PLAYER_CATEGORY)) continue;
+
+				TeleporterResolver.MirroredState state = TeleporterResolver.getState(node);
+				if (state != null && TeleporterNetwork.doKeyStacksMatch(sourceKey, state.key))
+				{
+					destinations.add(new Destination(node, state.name));
+				}
+			}
+			cachedChannel = new CachedChannel(partition, destinations);
+			channels.put(channel, cachedChannel);
+		}
+		return cachedChannel.destinations;
+	}
+
+	/**
+	 * forgets the channels built from partitions that have since changed, so they don't keep old partitions alive
+	 * until they are asked for again
+	 */
+	private static void evictStaleChannels(TeleporterNetworkSnapshot snapshot)
+	{
+		Iterator<Map.Entry<Channel, CachedChannel>> iterator = channels.entrySet().iterator();
+		while (iterator.hasNext())
+		{
+			Map.Entry<Channel, CachedChannel> entry = iterator.next();
+			if (entry.getValue().partition != snapshot.getPartition(entry.getKey().owner)) iterator.remove();
+		}
+	}
+
+	private static byte getStatus(TeleporterNetwork network, TeleporterNode node)
+	{
+		WorldServer world = DimensionManager.getWorld(node.dimension);
+		if (world == null || !world.isBlockLoaded(node.pos)) return MessageDestinationPage.UNKNOWN;
+
+		TileEntity tileEntity = world.getTileEntity(node.pos);
+		if (!(tileEntity instanceof TileEntityTeleporter)) return MessageDestinationPage.UNKNOWN;
+		if (((TileEntityTeleporter)tileEntity).isPowered()) return MessageDestinationPage.DISABLED;
+		if (network.isObstructed(world, node)) return MessageDestinationPage.BLOCKED;
+		return MessageDestinationPage.READY;
+	}
+
+
+
+	private static class Destination
+	{
+		private final TeleporterNode node;
+		private final String name;
+
+		private Destination(TeleporterNode node, String name)
+		{
+			this.node = node;
+			this.name = name;
+		}
+	}
+
+
+
+	private static class CachedChannel
+	{
+		private final ImmutableList<TeleporterNode> partition;
+		private final List<Destination> destinations;
+
+		private CachedChannel(ImmutableList<TeleporterNode> partition, List<Destination> destinations)
+		{
+			this.partition = partition;
+			this.destinations = destinations;
+		}
+	}
+
+
+
+	/**
+	 * the teleporters a source can reach share its type, owner and key, and which dimensions it can reach depends on
+	 * its own, so every teleporter on a channel can reach the same ones
+	 */
+	private static class Channel
+	{
+
+		private final BlockTeleporter.EnumType type;
+		private final UUID owner;
+		private final int dimension;
+		private final ItemStack key;
+
+		private Channel(TeleporterNode sourceNode, ItemStack key)
+		{
+			this.type = sourceNode.type;
+			this.owner = sourceNode.owner;
+			this.dimension = sourceNode.dimension;
+			this.key = key.copy();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Channel)) return false;
+			Channel channel = (Channel)obj;
+			return this.type == channel.type && Objects.equals(this.owner, channel.owner) && this.dimension == channel.dimension && areKeysEqual(this.key, channel.key);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int keyHash = (this.key.isEmpty() ? 0 : Item.getIdFromItem(this.key.getItem()) * 31 + this.key.getItemDamage());
+			return Objects.hash(this.type, this.owner, this.dimension, keyHash);
+		}
+
+		/**
+		 * a key with no tags matches keys with any tags but not the other way round, so a channel's teleporters depend on
+		 * the exact key and only identical keys share a channel
+		 */
+		private static boolean areKeysEqual(ItemStack a, ItemStack b)
+		{
+			if (a.isEmpty() || b.isEmpty()) return a.isEmpty() && b.isEmpty();
+			return ItemStack.areItemsEqual(a, b) && ItemStack.areItemStackTagsEqual(a, b);
+		}
+
+	}
+
+}
@@ -0,0 +1,77 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.common.config.ModConfiguration;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.text.ITextComponent;
+import net.minecraft.util.text.TextComponentTranslation;
+
+/**
+ * TeleporterDiagnostics sends a single summary message to the player for each teleport attempt, and suppresses
+ * the same summary if it was already sent to that player within the configured cooldown.
+ *
+ */
+public class TeleporterDiagnostics
+{
+
+	private static final String MESSAGE_PREFIX = "message." + TeleporterMod.MODID + '_' + TeleporterNetwork.class.getSimpleName() + '.';
+
+	private static final ITextComponent MESSAGE_BLOCKED = new TextComponentTranslation(MESSAGE_PREFIX + "teleporterBlocked");
+	private static final ITextComponent MESSAGE_DISABLED = new TextComponentTranslation(MESSAGE_PREFIX + "teleporterDisabled");
+	private static final ITextComponent MESSAGE_NOT_FOUND = new TextComponentTranslation(MESSAGE_PREFIX + "teleporterNotFound");
+
+	private static final Map<EntityPlayer, LastMessage> lastMessages = new WeakHashMap<EntityPlayer, LastMessage>();
+
+
+	/**
+	 * sends the summary of a teleport attempt to the player, unless the player has seen the same summary recently
+	 */
+	public static void sendSummary(EntityPlayer player, boolean found, int blockedCount, int disabledCount)
+	{
+		if (found && blockedCount == 0 && disabledCount == 0) return;
+
+		long signature = ((long)blockedCount << 32) | ((long)disabledCount << 1) | (found ? 1L : 0L);
+		long time = player.world.getTotalWorldTime();
+
+		LastMessage lastMessage = lastMessages.get(player);
+		if (lastMessage == null)
+		{
+			lastMessage = new LastMessage();
+			lastMessages.put(player, lastMessage);
+		}
+		else if (lastMessage.signature == signature && time - lastMessage.time < ModConfiguration.messageCooldown)
+		{
+			return;
+		}
+		lastMessage.signature = signature;
+		lastMessage.time = time;
+
+		player.sendMessage(getSummary(found, blockedCount, disabledCount));
+	}
+
+	private static ITextComponent getSummary(boolean found, int blockedCount, int disabledCount)
+	{
+		if (found)
+		{
+			if (blockedCount == 1 && disabledCount == 0) return MESSAGE_BLOCKED;
+			if (blockedCount == 0 && disabledCount == 1) return MESSAGE_DISABLED;
+			return new TextComponentTranslation(MESSAGE_PREFIX + "teleportersSkipped", blockedCount, disabledCount);
+		}
+		else
+		{
+			if (blockedCount == 0 && disabledCount == 0) return MESSAGE_NOT_FOUND;
+			return new TextComponentTranslation(MESSAGE_PREFIX + "teleporterNotFoundSkipped", blockedCount, disabledCount);
+		}
+	}
+
+
+
+	private static class LastMessage
+	{
+		private long signature;
+		private long time;
+	}
+
+}
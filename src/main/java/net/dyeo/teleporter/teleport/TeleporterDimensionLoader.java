@@ -0,0 +1,129 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.common.config.ModConfiguration;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.ForgeChunkManager;
+import net.minecraftforge.common.ForgeChunkManager.Ticket;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * TeleporterDimensionLoader loads unloaded destination dimensions when a scan reaches them, so ender teleporters don't
+ * need every linked dimension to stay loaded.
+ *
+ * a dimension loaded this way has the chunk of each arrival forced for a while after the last arrival, and once that
+ * window has passed the forced chunks are released and forge is free to unload the dimension again.
+ */
+public class TeleporterDimensionLoader implements ForgeChunkManager.LoadingCallback
+{
+
+	private static final Map<Integer, KeepAlive> keepAlives = new HashMap<Integer, KeepAlive>();
+
+
+	/**
+	 * loads the dimension if it is registered and loading destinations is enabled, returning null otherwise
+	 */
+	public static WorldServer load(int dimension)
+	{
+		if (!ModConfiguration.loadDestinationDimensions || !DimensionManager.isDimensionRegistered(dimension)) return null;
+
+		DimensionManager.initDimension(dimension);
+		WorldServer world = DimensionManager.getWorld(dimension);
+		if (world != null && !keepAlives.containsKey(dimension))
+		{
+			// only dimensions loaded here are kept alive, the rest are managed as normal. if nothing arrives before the
+			// window passes the dimension is left for forge to unload
+			KeepAlive keepAlive = new KeepAlive();
+			keepAlive.expiresAt = getTickCounter() + ModConfiguration.dimensionKeepAlive;
+			keepAlives.put(dimension, keepAlive);
+		}
+		return world;
+	}
+
+	/**
+	 * keeps the chunk of the destination node loaded for the keep-alive window, if its dimension was loaded on demand
+	 */
+	public static void onArrival(TeleporterNode destinationNode)
+	{
+		KeepAlive keepAlive = keepAlives.get(destinationNode.dimension);
+		WorldServer world = DimensionManager.getWorld(destinationNode.dimension);
+		if (keepAlive == null || world == null) return;
+
+		if (keepAlive.ticket == null)
+		{
+			keepAlive.ticket = ForgeChunkManager.requestTicket(TeleporterMod.instance, world, ForgeChunkManager.Type.NORMAL);
+			if (keepAlive.ticket == null) return;
+		}
+		ForgeChunkManager.forceChunk(keepAlive.ticket, new ChunkPos(destinationNode.pos));
+		keepAlive.expiresAt = getTickCounter() + ModConfiguration.dimensionKeepAlive;
+	}
+
+	private static int getTickCounter()
+	{
+		return FMLCommonHandler.instance().getMinecraftServerInstance().getTickCounter();
+	}
+
+	public static void clear()
+	{
+		keepAlives.clear();
+	}
+
+
+	/**
+	 * forced chunks are not carried over a restart, the dimension will be loaded again by the next teleport to it
+	 */
+	@Override
+	public void ticketsLoaded(List<Ticket> tickets, World world)
+	{
+		for (Ticket ticket : tickets)
+		{
+			ForgeChunkManager.releaseTicket(ticket);
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		// forge releases the tickets of an unloading world itself
+		if (!event.getWorld().isRemote) keepAlives.remove(event.getWorld().provider.getDimension());
+	}
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		if (event.phase == TickEvent.Phase.END && !keepAlives.isEmpty())
+		{
+			int tickCounter = getTickCounter();
+
+			Iterator<Map.Entry<Integer, KeepAlive>> iterator = keepAlives.entrySet().iterator();
+			while (iterator.hasNext())
+			{
+				KeepAlive keepAlive = iterator.next().getValue();
+				if (tickCounter >= keepAlive.expiresAt)
+				{
+					if (keepAlive.ticket != null) ForgeChunkManager.releaseTicket(keepAlive.ticket);
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+
+
+	private static class KeepAlive
+	{
+		private Ticket ticket = null;
+		private int expiresAt = 0;
+	}
+
+}
@@ -0,0 +1,206 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import net.dyeo.teleporter.TeleporterMod;
+
+/**
+ * decides which dimensions teleporters may link, from the configured source to destination rules
+ *
+ * the rules are evaluated once for every pair of registered dimensions and entity category when the server starts, and
+ * the outcomes are kept in a bit set, so skipping a disallowed destination during a scan costs a single bit test.
+ * dimensions registered later, outside that range, fall back to evaluating the rules directly.
+ */
+public class TeleporterDimensionPolicy
+{
+
+	/**
+	 * the widest range of dimension ids the matrix covers. at the full width and six categories it takes 48KB
+	 */
+	private static final int MAX_SPAN = 256;
+
+	private static List<Rule> rules = Collections.<Rule>emptyList();
+
+	// null while there are no rules, in which case every pair is allowed
+	private static volatile Matrix matrix = null;
+
+
+	/**
+	 * parses the rule list. the matrix only covers the rules directly until it is rebuilt for the registered dimensions
+	 */
+	public static void compile(String[] ruleStrings)
+	{
+		List<Rule> compiled = new ArrayList<Rule>(ruleStrings.length);
+		for (String ruleString : ruleStrings)
+		{
+			Rule rule = Rule.parse(ruleString.trim());
+			if (rule != null)
+			{
+				compiled.add(rule);
+			}
+			else if (!ruleString.trim().isEmpty())
+			{
+				TeleporterMod.LOGGER.warn("Ignoring malformed dimension rule \"{}\"", ruleString);
+			}
+		}
+		rules = compiled;
+		matrix = (compiled.isEmpty() ? null : new Matrix(compiled, 0, 0));
+	}
+
+	/**
+	 * evaluates the rules for every pair of the given dimensions
+	 */
+	public static void rebuild(Integer[] dimensions)
+	{
+		if (rules.isEmpty() || dimensions.length == 0) return;
+
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (int dimension : dimensions)
+		{
+			min = Math.min(min, dimension);
+			max = Math.max(max, dimension);
+		}
+
+		// vanilla dimensions sit at the bottom of the range, so keep those when the range is too wide
+		int span = (int)Math.min((long)max - min + 1, MAX_SPAN);
+		matrix = new Matrix(rules, min, span);
+	}
+
+	/**
+	 * whether an entity of the given category (an index into {@link TeleporterEntityFilter#CATEGORIES}) may teleport
+	 * from the source dimension to the destination dimension. teleporting within a dimension is always allowed
+	 */
+	public static boolean isAllowed(int sourceDimension, int destinationDimension, int category)
+	{
+		Matrix matrix = TeleporterDimensionPolicy.matrix;
+		return matrix == null || sourceDimension == destinationDimension || matrix.isAllowed(sourceDimension, destinationDimension, category);
+	}
+
+	private static boolean evaluate(List<Rule> rules, int sourceDimension, int destinationDimension, int category)
+	{
+		// the first matching rule wins, and pairs no rule matches are allowed
+		for (Rule rule : rules)
+		{
+			if (rule.matches(sourceDimension, destinationDimension, category)) return rule.allow;
+		}
+		return true;
+	}
+
+
+
+	private static class Matrix
+	{
+
+		private final List<Rule> rules;
+		private final int base;
+		private final int span;
+		private final BitSet denied;
+
+		private Matrix(List<Rule> rules, int base, int span)
+		{
+			this.rules = rules;
+			this.base = base;
+			this.span = span;
+			this.denied = new BitSet(TeleporterEntityFilter.CATEGORIES.size() * span * span);
+
+			for (int category = 0; category < TeleporterEntityFilter.CATEGORIES.size(); ++category)
+			{
+				for (int source = 0; source < span; ++source)
+				{
+					for (int destination = 0; destination < span; ++destination)
+					{
+						if (!evaluate(rules, base + source, base + destination, category))
+						{
+							this.denied.set(((category * span) + source) * span + destination);
+						}
+					}
+				}
+			}
+		}
+
+		private boolean isAllowed(int sourceDimension, int destinationDimension, int category)
+		{
+			int source = sourceDimension - this.base;
+			int destination = destinationDimension - this.base;
+			if (source >= 0 && source < this.span && destination >= 0 && destination < this.span)
+			{
+				return !this.denied.get(((category * this.span) + source) * this.span + destination);
+			}
+			return evaluate(this.rules, sourceDimension, destinationDimension, category);
+		}
+
+	}
+
+
+
+	private static class Rule
+	{
+
+		private final boolean allow;
+		private final Integer sourceDimension;
+		private final Integer destinationDimension;
+		private final int category;
+
+		private Rule(boolean allow, Integer sourceDimension, Integer destinationDimension, int category)
+		{
+			this.allow = allow;
+			this.sourceDimension = sourceDimension;
+			this.destinationDimension = destinationDimension;
+			this.category = category;
+		}
+
+		/**
+		 * parses "+" or "-" followed by "source>destination", where either side is a dimension id or "*", and optionally
+		 * "#" and an entity category
+		 */
+		private static Rule parse(String ruleString)
+		{
+			if (ruleString.length() < 2) return null;
+
+			char sign = ruleString.charAt(0);
+			if (sign != '+' && sign != '-') return null;
+
+			String body = ruleString.substring(1).toLowerCase(Locale.ROOT);
+			int category = -1;
+
+			int categoryIndex = body.indexOf('#');
+			if (categoryIndex >= 0)
+			{
+				category = TeleporterEntityFilter.CATEGORIES.indexOf(body.substring(categoryIndex + 1).trim());
+				if (category < 0) return null;
+				body = body.substring(0, categoryIndex);
+			}
+
+			String[] dimensions = body.split(">", -1);
+			if (dimensions.length != 2) return null;
+
+			try
+			{
+				return new Rule(sign == '+', parseDimension(dimensions[0]), parseDimension(dimensions[1]), category);
+			}
+			catch (NumberFormatException ex)
+			{
+				return null;
+			}
+		}
+
+		private static Integer parseDimension(String dimension)
+		{
+			dimension = dimension.trim();
+			return dimension.equals("*") ? null : Integer.valueOf(dimension);
+		}
+
+		private boolean matches(int sourceDimension, int destinationDimension, int category)
+		{
+			return (this.sourceDimension == null || this.sourceDimension == sourceDimension)
+				&& (this.destinationDimension == null || this.destinationDimension == destinationDimension)
+				&& (this.category < 0 || this.category == category);
+		}
+
+	}
+
+}
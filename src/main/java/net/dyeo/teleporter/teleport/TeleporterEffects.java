@@ -0,0 +1,130 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import net.dyeo.teleporter.common.network.MessageTeleportEffects;
+import net.dyeo.teleporter.common.network.PacketHandler;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.fml.common.network.NetworkRegistry.TargetPoint;
+
+/**
+ * TeleporterEffects collects the effects of every teleport made during a server tick, merging teleports between the
+ * same teleporters, and sends each merged effect once to the players near either end at the end of the tick.
+ *
+ */
+public class TeleporterEffects
+{
+
+	private static final double EFFECT_RANGE = 16.0D;
+
+	private static final Map<EffectKey, MessageTeleportEffects> pending = new LinkedHashMap<EffectKey, MessageTeleportEffects>();
+
+	// reused to look up pending effects, so a teleport that merges into one doesn't allocate. server thread only
+	private static final EffectKey lookupKey = new EffectKey();
+
+
+	public static void queue(TeleporterNode sourceNode, TeleporterNode destinationNode, boolean succeeded)
+	{
+		lookupKey.set(sourceNode, destinationNode, succeeded);
+		MessageTeleportEffects message = pending.get(lookupKey);
+		if (message != null)
+		{
+			message.incrementCount();
+		}
+		else
+		{
+			pending.put(lookupKey.copy(), new MessageTeleportEffects(sourceNode, destinationNode, succeeded));
+		}
+	}
+
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		if (event.phase == TickEvent.Phase.END && !pending.isEmpty())
+		{
+			for (MessageTeleportEffects message : pending.values())
+			{
+				send(message);
+			}
+			pending.clear();
+		}
+	}
+
+
+	/**
+	 * sends each end of the effect to the players around it, so a player near both ends still plays each effect once
+	 */
+	private static void send(MessageTeleportEffects message)
+	{
+		PacketHandler.INSTANCE.sendToAllAround(message.forSource(), getTargetPoint(message.getSourceDimension(), message.getSourcePos()));
+
+		if (message.getSucceeded() && message.hasDestination())
+		{
+			PacketHandler.INSTANCE.sendToAllAround(message.forDestination(), getTargetPoint(message.getDestinationDimension(), message.getDestinationPos()));
+		}
+	}
+
+	private static TargetPoint getTargetPoint(int dimension, BlockPos pos)
+	{
+		return new TargetPoint(dimension, pos.getX() + 0.5D, pos.getY() + 0.5D, pos.getZ() + 0.5D, EFFECT_RANGE);
+	}
+
+
+
+	/**
+	 * teleports between the same teleporters with the same outcome share one effect
+	 */
+	private static final class EffectKey
+	{
+
+		private BlockPos sourcePos;
+		private int sourceDimension;
+		private BlockPos destinationPos;
+		private int destinationDimension;
+		private boolean succeeded;
+
+		private void set(TeleporterNode sourceNode, TeleporterNode destinationNode, boolean succeeded)
+		{
+			this.sourcePos = sourceNode.pos;
+			this.sourceDimension = sourceNode.dimension;
+			this.destinationPos = (destinationNode != null ? destinationNode.pos : null);
+			this.destinationDimension = (destinationNode != null ? destinationNode.dimension : 0);
+			this.succeeded = succeeded;
+		}
+
+		private EffectKey copy()
+		{
+			EffectKey key = new EffectKey();
+			key.sourcePos = this.sourcePos;
+			key.sourceDimension = this.sourceDimension;
+			key.destinationPos = this.destinationPos;
+			key.destinationDimension = this.destinationDimension;
+			key.succeeded = this.succeeded;
+			return key;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof EffectKey)) return false;
+			EffectKey key = (EffectKey)obj;
+			return this.succeeded == key.succeeded && this.sourceDimension == key.sourceDimension && this.destinationDimension == key.destinationDimension
+				&& this.sourcePos.equals(key.sourcePos) && Objects.equals(this.destinationPos, key.destinationPos);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int hash = this.sourcePos.hashCode() * 31 + this.sourceDimension;
+			hash = hash * 31 + (this.destinationPos != null ? this.destinationPos.hashCode() : 0);
+			hash = hash * 31 + this.destinationDimension;
+			return hash * 2 + (this.succeeded ? 1 : 0);
+		}
+
+	}
+
+}
@@ -0,0 +1,204 @@
+package net.dyeo.teleporter.teleport;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.common.config.ModConfiguration;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityList;
+import net.minecraft.entity.EnumCreatureType;
+import net.minecraft.entity.monster.EntityMob;
+import net.minecraft.entity.passive.EntityAnimal;
+import net.minecraft.entity.passive.EntityWolf;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.ResourceLocation;
+
+/**
+ * decides which entities may use teleporters, from the configured allow/deny rules and the hostile/passive mob settings
+ *
+ * rules are parsed once when the configuration loads, and the outcome for each entity class is worked out the first time
+ * that class steps on a teleporter, so every later check is a single identity map lookup. only used on the server thread.
+ */
+public class TeleporterEntityFilter
+{
+
+	/**
+	 * the categories rules can match, in the order used by {@link #getCategory(Entity)}
+	 */
+	public static final ImmutableList<String> CATEGORIES = ImmutableList.<String>of("monster", "creature", "ambient", "water_creature", "player", "misc");
+
+	private static final String CATEGORY_PLAYER = "player";
+	private static final String CATEGORY_MISC = "misc";
+
+	private static List<Rule> rules = Collections.<Rule>emptyList();
+	private static final Map<Class<? extends Entity>, Decision> decisions = new IdentityHashMap<Class<? extends Entity>, Decision>();
+	private static final Map<Class<? extends Entity>, Integer> categories = new IdentityHashMap<Class<? extends Entity>, Integer>();
+
+
+	/**
+	 * parses the rule list, discarding any decisions made under the previous rules
+	 */
+	public static void compile(String[] ruleStrings)
+	{
+		List<Rule> compiled = new ArrayList<Rule>(ruleStrings.length);
+		for (String ruleString : ruleStrings)
+		{
+			Rule rule = Rule.parse(ruleString.trim());
+			if (rule != null)
+			{
+				compiled.add(rule);
+			}
+			else if (!ruleString.trim().isEmpty())
+			{
+				TeleporterMod.LOGGER.warn("Ignoring malformed entity rule \"{}\"", ruleString);
+			}
+		}
+		rules = compiled;
+		decisions.clear();
+	}
+
+	/**
+	 * whether the configuration allows this entity to use teleporters
+	 */
+	public static boolean isEligible(Entity entity)
+	{
+		Class<? extends Entity> entityClass = entity.getClass();
+		Decision decision = decisions.get(entityClass);
+		if (decision == null)
+		{
+			decision = decide(entityClass);
+			decisions.put(entityClass, decision);
+		}
+
+		switch (decision)
+		{
+			case ALLOW: return true;
+			case ALLOW_UNLESS_ANGRY: return !((EntityWolf)entity).isAngry();
+			default: return false;
+		}
+	}
+
+	/**
+	 * gets the index of the entity's category in {@link #CATEGORIES}
+	 */
+	public static int getCategory(Entity entity)
+	{
+		Class<? extends Entity> entityClass = entity.getClass();
+		Integer category = categories.get(entityClass);
+		if (category == null)
+		{
+			category = CATEGORIES.indexOf(getCategoryName(entityClass));
+			categories.put(entityClass, category);
+		}
+		return category;
+	}
+
+	private static Decision decide(Class<? extends Entity> entityClass)
+	{
+		ResourceLocation name = EntityList.getKey(entityClass);
+		String category = getCategoryName(entityClass);
+
+		// the first matching rule wins
+		for (Rule rule : rules)
+		{
+			if (rule.matches(name, category))
+			{
+				return rule.allow ? Decision.ALLOW : Decision.DENY;
+			}
+		}
+
+		// otherwise fall back to the hostile/passive mob settings
+		boolean isHostile = EntityMob.class.isAssignableFrom(entityClass);
+		boolean isPassive = EntityAnimal.class.isAssignableFrom(entityClass);
+
+		if (isHostile && !ModConfiguration.teleportHostileMobs) return Decision.DENY;
+		if (isPassive && !ModConfiguration.teleportPassiveMobs) return Decision.DENY;
+
+		// wolves only count as hostile while they are angry, which can change at any time
+		if (EntityWolf.class.isAssignableFrom(entityClass) && !ModConfiguration.teleportHostileMobs) return Decision.ALLOW_UNLESS_ANGRY;
+
+		return Decision.ALLOW;
+	}
+
+	private static String getCategoryName(Class<? extends Entity> entityClass)
+	{
+		if (EntityPlayer.class.isAssignableFrom(entityClass)) return CATEGORY_PLAYER;
+		for (EnumCreatureType type : EnumCreatureType.values())
+		{
+			// other mods can add creature types, which are not categories rules can match
+			String category = type.name().toLowerCase(Locale.ROOT);
+			if (CATEGORIES.contains(category) && type.getCreatureClass().isAssignableFrom(entityClass)) return category;
+		}
+		return CATEGORY_MISC;
+	}
+
+
+
+	private static enum Decision
+	{
+		ALLOW,
+		ALLOW_UNLESS_ANGRY,
+		DENY;
+	}
+
+
+
+	private static class Rule
+	{
+
+		private final boolean allow;
+		private final char kind;
+		private final String value;
+
+		private Rule(boolean allow, char kind, String value)
+		{
+			this.allow = allow;
+			this.kind = kind;
+			this.value = value;
+		}
+
+		/**
+		 * parses "+" or "-" followed by a registry name, "@" and a mod id, "#" and a category, or "*" for everything except players
+		 */
+		private static Rule parse(String ruleString)
+		{
+			if (ruleString.length() < 2) return null;
+
+			char sign = ruleString.charAt(0);
+			if (sign != '+' && sign != '-') return null;
+
+			String body = ruleString.substring(1).toLowerCase(Locale.ROOT);
+			char kind = body.charAt(0);
+			if (kind == '*')
+			{
+				return body.length() == 1 ? new Rule(sign == '+', kind, null) : null;
+			}
+			else if (kind == '@' || kind == '#')
+			{
+				return body.length() > 1 ? new Rule(sign == '+', kind, body.substring(1)) : null;
+			}
+			else
+			{
+				return new Rule(sign == '+', ' ', new ResourceLocation(body).toString());
+			}
+		}
+
+		private boolean matches(ResourceLocation name, String category)
+		{
+			switch (this.kind)
+			{
+				case '*': return !CATEGORY_PLAYER.equals(category);
+				case '@': return name != null && this.value.equals(name.getResourceDomain());
+				case '#': return this.value.equals(category);
+				default: return name != null && this.value.equals(name.toString());
+			}
+		}
+
+	}
+
+}
@@ -1,8 +1,21 @@
 package net.dyeo.teleporter.teleport;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.Nullable;
 import net.dyeo.teleporter.TeleporterMod;
 import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.metrics.TeleporterMetrics;
+import net.dyeo.teleporter.metrics.TeleporterTrace;
 import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
 import net.minecraft.block.Block;
 import net.minecraft.entity.Entity;
@@ -11,13 +24,15 @@ import net.minecraft.init.Items;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 import net.minecraft.world.storage.WorldSavedData;
 import net.minecraftforge.common.DimensionManager;
 import net.minecraftforge.common.util.Constants.NBT;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
 import net.minecraftforge.items.CapabilityItemHandler;
 
 /**
@@ -28,8 +43,29 @@ import net.minecraftforge.items.CapabilityItemHandler;
 public class TeleporterNetwork extends WorldSavedData
 {
 
+	private static final Set<TeleporterNetwork> pendingNetworks = Collections.newSetFromMap(new IdentityHashMap<TeleporterNetwork, Boolean>());
+
 	private ArrayList<TeleporterNode> network = new ArrayList<TeleporterNode>();
 
+	// nodes indexed by dimension and position, kept in step with the network list
+	private final Map<Integer, Map<BlockPos, TeleporterNode>> nodeIndex = new HashMap<Integer, Map<BlockPos, TeleporterNode>>();
+
+	// the nodes of each owner's private network in network order, with public nodes under the null owner
+	private final Map<UUID, List<TeleporterNode>> partitions = new HashMap<UUID, List<TeleporterNode>>();
+
+	// node upserts (or removals, as null values) queued during the current tick
+	private final Map<Integer, Map<BlockPos, TeleporterNode>> pendingNodes = new HashMap<Integer, Map<BlockPos, TeleporterNode>>();
+
+	// the latest immutable copy of the network, for readers on other threads
+	private volatile TeleporterNetworkSnapshot snapshot = TeleporterNetworkSnapshot.EMPTY;
+	private static volatile TeleporterNetworkSnapshot latestSnapshot = TeleporterNetworkSnapshot.EMPTY;
+
+	private final BlockPos.MutableBlockPos obstructionPos = new BlockPos.MutableBlockPos();
+
+	// how walks look at the teleporters they pass, and the result of the last walk, reused by every walk
+	private TeleporterWorldAccess worldAccess = new ServerWorldAccess();
+	private final Scan lastScan = new Scan();
+
 	public TeleporterNetwork()
 	{
 		super(TeleporterMod.MODID);
@@ -57,21 +93,37 @@ public class TeleporterNetwork extends WorldSavedData
 	@Override
 	public void readFromNBT(NBTTagCompound nbt)
 	{
+		long startTime = System.nanoTime();
 		NBTTagList netNBT = nbt.getTagList("Network", NBT.TAG_COMPOUND);
 
 		if (this.network.size() != 0) this.network.clear();
+		this.nodeIndex.clear();
+		this.partitions.clear();
 
 		for (int i = 0; i < netNBT.tagCount(); ++i)
 		{
 			NBTTagCompound nodeNBT = netNBT.getCompoundTagAt(i);
 			TeleporterNode node = new TeleporterNode(nodeNBT);
-			this.network.add(node);
+
+			// skip duplicate entries for the same position
+			if (this.getIndexedNode(node.pos, node.dimension) == null)
+			{
+				this.network.add(node);
+				this.indexNode(node);
+				this.getPartition(node.owner).add(node);
+			}
 		}
+
+		this.publishSnapshot(null, null);
+		TeleporterMetrics.recordLoad(System.nanoTime() - startTime);
 	}
 
 	@Override
 	public NBTTagCompound writeToNBT(NBTTagCompound nbt)
 	{
+		this.applyPendingNodes();
+		long startTime = System.nanoTime();
+
 		NBTTagList netNBT = new NBTTagList();
 
 		for (int i = 0; i < this.network.size(); ++i)
@@ -82,43 +134,280 @@ public class TeleporterNetwork extends WorldSavedData
 		}
 
 		nbt.setTag("Network", netNBT);
+		TeleporterMetrics.recordSave(System.nanoTime() - startTime);
 		return nbt;
 	}
 
 
 	public TeleporterNode getNode(BlockPos pos, int dimension)
 	{
-		for (int i = 0; i < this.network.size(); ++i)
+		this.applyPendingNodes();
+		return this.getIndexedNode(pos, dimension);
+	}
+
+	/**
+	 * returns a read-only view of every node in the network, in network order
+	 */
+	public List<TeleporterNode> getNodes()
+	{
+		this.applyPendingNodes();
+		return Collections.unmodifiableList(this.network);
+	}
+
+	/**
+	 * returns the number of teleporters in an owner's private network, or in the public network if the owner is null
+	 */
+	public int getNodeCount(@Nullable UUID owner)
+	{
+		this.applyPendingNodes();
+		List<TeleporterNode> partition = this.partitions.get(owner);
+		return partition != null ? partition.size() : 0;
+	}
+
+	/**
+	 * returns the number of teleporters in each owner's private network, with the public network under the null owner
+	 */
+	public Map<UUID, Integer> getNodeCounts()
+	{
+		this.applyPendingNodes();
+		Map<UUID, Integer> counts = new HashMap<UUID, Integer>();
+		for (Map.Entry<UUID, List<TeleporterNode>> entry : this.partitions.entrySet())
 		{
-			TeleporterNode node = this.network.get(i);
-			if (node.matches(pos, dimension))
-			{
-				return node;
-			}
+			counts.put(entry.getKey(), entry.getValue().size());
 		}
-		return null;
+		return counts;
 	}
 
 
 	public void addNode(TeleporterNode node)
 	{
-		this.network.add(node);
-		this.markDirty();
+		this.applyPendingNodes();
+		if (this.getIndexedNode(node.pos, node.dimension) == null)
+		{
+			this.network.add(node);
+			this.indexNode(node);
+			this.getPartition(node.owner).add(node);
+			this.markDirty();
+			this.publishSnapshot(Collections.singleton(node.dimension), Collections.singleton(node.owner));
+		}
 	}
 
 	public boolean removeNode(BlockPos pos, int dimension)
 	{
-		for (int i = 0; i < this.network.size(); ++i)
+		this.applyPendingNodes();
+		TeleporterNode node = this.unindexNode(pos, dimension);
+		if (node != null)
 		{
-			TeleporterNode node = this.network.get(i);
-			if (node.matches(pos, dimension))
+			this.network.remove(node);
+			this.removeFromPartition(node);
+			this.markDirty();
+			this.publishSnapshot(Collections.singleton(dimension), Collections.singleton(node.owner));
+			return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * queues a node to be added, or updated if a node already exists at its position, at the end of the tick
+	 */
+	public void queueNode(TeleporterNode node)
+	{
+		this.queue(node.pos, node.dimension, node);
+	}
+
+	/**
+	 * queues the node at the given position to be removed at the end of the tick
+	 */
+	public void queueRemoveNode(BlockPos pos, int dimension)
+	{
+		this.queue(pos, dimension, null);
+	}
+
+	private void queue(BlockPos pos, int dimension, TeleporterNode node)
+	{
+		Map<BlockPos, TeleporterNode> dimensionNodes = this.pendingNodes.get(dimension);
+		if (dimensionNodes == null)
+		{
+			dimensionNodes = new LinkedHashMap<BlockPos, TeleporterNode>();
+			this.pendingNodes.put(dimension, dimensionNodes);
+		}
+		// a later change to the same position replaces any earlier one
+		dimensionNodes.remove(pos);
+		dimensionNodes.put(pos, node);
+		pendingNetworks.add(this);
+	}
+
+	/**
+	 * applies all queued node changes in one pass, marking the network dirty at most once
+	 */
+	public void applyPendingNodes()
+	{
+		if (this.pendingNodes.isEmpty()) return;
+
+		Set<Integer> changedDimensions = new HashSet<Integer>();
+		Set<UUID> changedOwners = new HashSet<UUID>();
+
+		// the nodes that were removed, mapped to null, or replaced, mapped to the node that takes their place. the lists
+		// they are in are gone through once at the end, rather than searched for each node
+		Map<TeleporterNode, TeleporterNode> replacedNodes = new IdentityHashMap<TeleporterNode, TeleporterNode>();
+		Set<UUID> replacedOwners = new HashSet<UUID>();
+
+		for (Map.Entry<Integer, Map<BlockPos, TeleporterNode>> dimensionEntry : this.pendingNodes.entrySet())
+		{
+			int dimension = dimensionEntry.getKey();
+			for (Map.Entry<BlockPos, TeleporterNode> entry : dimensionEntry.getValue().entrySet())
 			{
-				this.network.remove(node);
-				this.markDirty();
-				return true;
+				TeleporterNode pendingNode = entry.getValue();
+				TeleporterNode existingNode = this.getIndexedNode(entry.getKey(), dimension);
+
+				if (pendingNode == null)
+				{
+					if (existingNode != null)
+					{
+						this.unindexNode(existingNode.pos, existingNode.dimension);
+						replacedNodes.put(existingNode, null);
+						replacedOwners.add(existingNode.owner);
+						changedDimensions.add(dimension);
+					}
+				}
+				else if (existingNode == null)
+				{
+					this.network.add(pendingNode);
+					this.indexNode(pendingNode);
+					this.getPartition(pendingNode.owner).add(pendingNode);
+					changedDimensions.add(dimension);
+					changedOwners.add(pendingNode.owner);
+				}
+				else if (existingNode.type != pendingNode.type || !Objects.equals(existingNode.owner, pendingNode.owner))
+				{
+					// nodes are immutable, so the changed node takes the place of the old one. a node that changed owner
+					// leaves its old partition and joins the end of the new one
+					this.indexNode(pendingNode);
+					replacedNodes.put(existingNode, pendingNode);
+					replacedOwners.add(existingNode.owner);
+					if (!Objects.equals(existingNode.owner, pendingNode.owner))
+					{
+						this.getPartition(pendingNode.owner).add(pendingNode);
+					}
+					changedDimensions.add(dimension);
+					changedOwners.add(pendingNode.owner);
+				}
 			}
 		}
-		return false;
+
+		this.pendingNodes.clear();
+		pendingNetworks.remove(this);
+
+		if (!replacedNodes.isEmpty())
+		{
+			replaceNodes(this.network, replacedNodes, false);
+			for (UUID owner : replacedOwners)
+			{
+				List<TeleporterNode> partition = this.partitions.get(owner);
+				if (partition == null) continue;
+
+				replaceNodes(partition, replacedNodes, true);
+				if (partition.isEmpty()) this.partitions.remove(owner);
+			}
+		}
+
+		if (!changedDimensions.isEmpty())
+		{
+			this.markDirty();
+			changedOwners.addAll(replacedOwners);
+			this.publishSnapshot(changedDimensions, changedOwners);
+		}
+	}
+
+
+	/**
+	 * gets the latest snapshot of this network. safe to call from any thread
+	 */
+	public TeleporterNetworkSnapshot getSnapshot()
+	{
+		return this.snapshot;
+	}
+
+	/**
+	 * gets the latest snapshot published by any network, for threads that have no access to a world.
+	 * safe to call from any thread
+	 */
+	public static TeleporterNetworkSnapshot getLatestSnapshot()
+	{
+		return latestSnapshot;
+	}
+
+	/**
+	 * replaces or removes nodes in one pass over the list, keeping the order of the rest. in a partition, a node
+	 * replaced by one with another owner is removed, since the new node has joined its own owner's partition
+	 */
+	private static void replaceNodes(List<TeleporterNode> nodes, Map<TeleporterNode, TeleporterNode> replacedNodes, boolean isPartition)
+	{
+		int size = 0;
+		for (int i = 0; i < nodes.size(); ++i)
+		{
+			TeleporterNode node = nodes.get(i);
+			if (replacedNodes.containsKey(node))
+			{
+				TeleporterNode replacement = replacedNodes.get(node);
+				if (replacement == null || (isPartition && !Objects.equals(replacement.owner, node.owner))) continue;
+				node = replacement;
+			}
+			nodes.set(size++, node);
+		}
+		nodes.subList(size, nodes.size()).clear();
+	}
+
+	private void publishSnapshot(@Nullable Set<Integer> changedDimensions, @Nullable Set<UUID> changedOwners)
+	{
+		this.snapshot = TeleporterNetworkSnapshot.create(this.snapshot, this.nodeIndex, this.partitions, changedDimensions, changedOwners);
+		latestSnapshot = this.snapshot;
+	}
+
+
+	private List<TeleporterNode> getPartition(@Nullable UUID owner)
+	{
+		List<TeleporterNode> partition = this.partitions.get(owner);
+		if (partition == null)
+		{
+			partition = new ArrayList<TeleporterNode>();
+			this.partitions.put(owner, partition);
+		}
+		return partition;
+	}
+
+	private void removeFromPartition(TeleporterNode node)
+	{
+		List<TeleporterNode> partition = this.partitions.get(node.owner);
+		if (partition != null && partition.remove(node) && partition.isEmpty())
+		{
+			this.partitions.remove(node.owner);
+		}
+	}
+
+
+	private TeleporterNode getIndexedNode(BlockPos pos, int dimension)
+	{
+		Map<BlockPos, TeleporterNode> dimensionNodes = this.nodeIndex.get(dimension);
+		return dimensionNodes != null ? dimensionNodes.get(pos) : null;
+	}
+
+	private void indexNode(TeleporterNode node)
+	{
+		Map<BlockPos, TeleporterNode> dimensionNodes = this.nodeIndex.get(node.dimension);
+		if (dimensionNodes == null)
+		{
+			dimensionNodes = new HashMap<BlockPos, TeleporterNode>();
+			this.nodeIndex.put(node.dimension, dimensionNodes);
+		}
+		dimensionNodes.put(node.pos, node);
+	}
+
+	private TeleporterNode unindexNode(BlockPos pos, int dimension)
+	{
+		Map<BlockPos, TeleporterNode> dimensionNodes = this.nodeIndex.get(dimension);
+		return dimensionNodes != null ? dimensionNodes.remove(pos) : null;
 	}
 
 
@@ -128,12 +417,34 @@ public class TeleporterNetwork extends WorldSavedData
 	 */
 	public TeleporterNode getNextNode(Entity entityIn, TeleporterNode sourceNode)
 	{
+		return this.getNextNode(entityIn, sourceNode, null);
+	}
 
+	/**
+	 * gets the next node that can be teleported to from the target teleporter, walking the network from the node after
+	 * resumeAfter back round to the source. used to carry on a walk that was started off the server thread
+	 *
+	 * @param resumeAfter the last node that has already been checked, or null to walk the whole network
+	 */
+	public TeleporterNode getNextNode(Entity entityIn, TeleporterNode sourceNode, @Nullable TeleporterNode resumeAfter)
+	{
 		TileEntityTeleporter tEntSource = (TileEntityTeleporter)entityIn.world.getTileEntity(sourceNode.pos);
 		ItemStack sourceKey = tEntSource.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null).getStackInSlot(0);
 
-		TeleporterNode destinationNode = null;
+		TeleporterNode destinationNode = this.findDestination(sourceNode, sourceKey, TeleporterEntityFilter.getCategory(entityIn), resumeAfter);
 
+		tEntSource.setLinked(destinationNode != null);
+		sendSummary(entityIn, destinationNode != null, this.lastScan.blocked, this.lastScan.disabled);
+
+		return destinationNode;
+	}
+
+	/**
+	 * sends the player riding on top of the entity, if there is one, a single summary of the teleporters that were
+	 * skipped or not found
+	 */
+	static void sendSummary(Entity entityIn, boolean found, int blockedCount, int disabledCount)
+	{
 		// get the top-most entity (rider) for sending messages
 		Entity potentialPlayerEntity = entityIn;
 		while (!potentialPlayerEntity.getPassengers().isEmpty())
@@ -141,102 +452,221 @@ public class TeleporterNetwork extends WorldSavedData
 			potentialPlayerEntity = potentialPlayerEntity.getControllingPassenger();
 		}
 
-		int index = this.network.indexOf(sourceNode);
-		for (int i = index + 1; i < this.network.size() + index; ++i)
+		if (potentialPlayerEntity instanceof EntityPlayer)
 		{
+			TeleporterDiagnostics.sendSummary((EntityPlayer)potentialPlayerEntity, found, blockedCount, disabledCount);
+		}
+	}
 
-			TeleporterNode node = this.network.get(i % this.network.size());
-
-			WorldServer destinationWorld = DimensionManager.getWorld(node.dimension);
-			if (destinationWorld != null)
-			{
-				// if this node matches the source node, continue
-				if (node == sourceNode)
-				{
-					continue;
-				}
+	/**
+	 * walks the source's network for the next node an entity of the given category with the source key can teleport
+	 * to, without an entity or the source's tile entity. the walk is described by {@link #getLastScan} until the next one
+	 *
+	 * @param resumeAfter the last node that has already been checked, or null to walk the whole network
+	 */
+	@Nullable
+	public TeleporterNode findDestination(TeleporterNode sourceNode, ItemStack sourceKey, int category, @Nullable TeleporterNode resumeAfter)
+	{
+		this.applyPendingNodes();
+		long startTime = System.nanoTime();
 
-				// if the teleporter types are different, continue
-				if (sourceNode.type != node.type)
-				{
-					continue;
-				}
+		TeleporterNode destinationNode = null;
+		int blockedCount = 0;
+		int disabledCount = 0;
+		int deniedCount = 0;
 
-				// if the teleporter isn't inter-dimensional and the dimensions are different, continue
-				if (sourceNode.type == BlockTeleporter.EnumType.REGULAR && sourceNode.dimension != node.dimension)
-				{
-					continue;
-				}
+		// only the source's own network is scanned, private or public
+		List<TeleporterNode> partition = this.getPartition(sourceNode.owner);
 
-				// if a tile entity doesn't exist at the specified node location, continue
-				TileEntityTeleporter tEntDest = (TileEntityTeleporter)destinationWorld.getTileEntity(node.pos);
-				if (tEntDest == null)
-				{
-					continue;
-				}
+		int size = partition.size();
+		int sourceIndex = partition.indexOf(sourceNode);
+		int startIndex = (resumeAfter != null ? partition.indexOf(resumeAfter) : -1);
 
-				// if the key itemstacks are different, continue
-				ItemStack destinationKey = tEntDest.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null).getStackInSlot(0);
-				if (!this.doKeyStacksMatch(sourceKey, destinationKey))
-				{
-					continue;
-				}
+		// every node but the source, or only those between the resumed node and the source. a source missing from
+		// the partition leaves every node to walk
+		int count = (sourceIndex >= 0 ? size - 1 : size);
+		if (resumeAfter != null && startIndex >= 0 && sourceIndex >= 0)
+		{
+			count = Math.min(count, (sourceIndex - startIndex - 1 + size) % size);
+		}
+		else
+		{
+			startIndex = sourceIndex;
+		}
 
-				// if the destination node is obstructed, continue
-				if (this.isObstructed(destinationWorld, node))
-				{
-					if (potentialPlayerEntity instanceof EntityPlayer)
-					{
-						EntityPlayer entityPlayer = (EntityPlayer) potentialPlayerEntity;
-						entityPlayer.sendMessage(this.getMessage("teleporterBlocked"));
-					}
-					continue;
-				}
+		int scanned = 0;
+		for (int i = startIndex + 1; scanned < count; ++i)
+		{
+			++scanned;
 
-				// if the destination node is powered, continue
-				if (tEntDest.isPowered() == true)
-				{
-					if (potentialPlayerEntity instanceof EntityPlayer)
-					{
-						EntityPlayer entityPlayer = (EntityPlayer) potentialPlayerEntity;
-						entityPlayer.sendMessage(this.getMessage("teleporterDisabled"));
-					}
-					continue;
-				}
+			TeleporterNode node = partition.get(i % size);
 
-				// if all above conditions are met, we've found a valid destination node.
+			DestinationCheck check = this.checkDestination(sourceNode, sourceKey, node, category);
+			if (check == DestinationCheck.BLOCKED)
+			{
+				++blockedCount;
+			}
+			else if (check == DestinationCheck.DISABLED)
+			{
+				++disabledCount;
+			}
+			else if (check == DestinationCheck.DENIED)
+			{
+				++deniedCount;
+			}
+			else if (check == DestinationCheck.VALID)
+			{
+				// if all conditions are met, we've found a valid destination node.
 				destinationNode = node;
 				break;
 			}
 		}
 
-		if (destinationNode == null && potentialPlayerEntity instanceof EntityPlayer)
-		{
-			EntityPlayer entityPlayer = (EntityPlayer) potentialPlayerEntity;
-			entityPlayer.sendMessage(this.getMessage("teleporterNotFound"));
-		}
+		long scanNanos = System.nanoTime() - startTime;
+		TeleporterMetrics.recordScan(scanned, destinationNode != null, blockedCount, disabledCount, deniedCount, scanNanos);
+		TeleporterTrace.recordScan(scanned, scanNanos);
 
+		this.lastScan.length = scanned;
+		this.lastScan.blocked = blockedCount;
+		this.lastScan.disabled = disabledCount;
+		this.lastScan.denied = deniedCount;
 		return destinationNode;
 	}
 
-	private boolean isObstructed(World world, TeleporterNode node)
+	/**
+	 * describes the last walk of this network. the same object is reused by every walk
+	 */
+	public Scan getLastScan()
 	{
-		BlockPos blockPos1 = new BlockPos(node.pos.getX(), node.pos.getY() + 1, node.pos.getZ());
-		BlockPos blockPos2 = new BlockPos(node.pos.getX(), node.pos.getY() + 2, node.pos.getZ());
-		Block block1 = world.getBlockState(blockPos1).getBlock();
-		Block block2 = world.getBlockState(blockPos2).getBlock();
+		return this.lastScan;
+	}
 
-		if (block1.isPassable(world, blockPos1) && block2.isPassable(world, blockPos2))
+	/**
+	 * replaces how walks of this network look at the teleporters they pass, for walking it without a running server
+	 */
+	public void setWorldAccess(TeleporterWorldAccess worldAccess)
+	{
+		this.worldAccess = worldAccess;
+	}
+
+	/**
+	 * returns true if the node passes the checks that don't need the world, so it is worth looking up as a destination.
+	 * shared with the resolver workers and the trace replay, which have no world to check against
+	 */
+	public static boolean isCandidate(TeleporterNode sourceNode, TeleporterNode node, int category)
+	{
+		return isLinkable(sourceNode, node) && TeleporterDimensionPolicy.isAllowed(sourceNode.dimension, node.dimension, category);
+	}
+
+	/**
+	 * returns true if the node is another teleporter on the source's network that the source's type can lead to,
+	 * before the dimension policy is applied
+	 */
+	private static boolean isLinkable(TeleporterNode sourceNode, TeleporterNode node)
+	{
+		// if this node matches the source node, skip it
+		if (node == sourceNode)
 		{
 			return false;
 		}
-		else
+
+		// if the teleporters belong to different networks, skip it
+		if (!Objects.equals(sourceNode.owner, node.owner))
+		{
+			return false;
+		}
+
+		// if the teleporter types are different, skip it
+		if (sourceNode.type != node.type)
+		{
+			return false;
+		}
+
+		// if the teleporter isn't inter-dimensional and the dimensions are different, skip it
+		return sourceNode.type != BlockTeleporter.EnumType.REGULAR || sourceNode.dimension == node.dimension;
+	}
+
+	/**
+	 * checks whether an entity of the given category can teleport to the node from the source node right now. also
+	 * used to re-validate destinations that were chosen off the server thread
+	 */
+	DestinationCheck checkDestination(TeleporterNode sourceNode, ItemStack sourceKey, TeleporterNode node, int category)
+	{
+		// rule out the node by its network, type and dimension before looking the world up
+		if (!isLinkable(sourceNode, node))
+		{
+			return DestinationCheck.SKIPPED;
+		}
+
+		// if the dimension policy doesn't allow this pair of dimensions, skip it
+		if (!TeleporterDimensionPolicy.isAllowed(sourceNode.dimension, node.dimension, category))
+		{
+			return DestinationCheck.DENIED;
+		}
+
+		TeleporterWorldAccess worlds = this.worldAccess;
+		if (!worlds.isLoaded(node.dimension))
+		{
+			// rule the node out by its last known key and power before loading a dimension for it
+			TeleporterResolver.MirroredState state = TeleporterResolver.getState(node);
+			if (state != null && !doKeyStacksMatch(sourceKey, state.key)) return DestinationCheck.SKIPPED;
+			if (state != null && state.powered) return DestinationCheck.DISABLED;
+
+			// load the dimension if that's enabled, otherwise skip it
+			if (!worlds.load(node.dimension)) return DestinationCheck.SKIPPED;
+		}
+
+		// if a teleporter doesn't exist at the specified node location, skip it
+		ItemStack destinationKey = worlds.getKey(node);
+		if (destinationKey == null)
+		{
+			return DestinationCheck.SKIPPED;
+		}
+
+		// if the key itemstacks are different, skip it
+		if (!doKeyStacksMatch(sourceKey, destinationKey))
+		{
+			return DestinationCheck.SKIPPED;
+		}
+
+		// if the destination node is obstructed, skip it
+		if (worlds.isObstructed(node))
+		{
+			return DestinationCheck.BLOCKED;
+		}
+
+		// if the destination node is powered, skip it
+		if (worlds.isPowered(node))
+		{
+			return DestinationCheck.DISABLED;
+		}
+
+		return DestinationCheck.VALID;
+	}
+
+	boolean isObstructed(World world, TeleporterNode node)
+	{
+		// reuse a single mutable position, this is called for every candidate node during a scan
+		BlockPos.MutableBlockPos blockPos = this.obstructionPos;
+
+		blockPos.setPos(node.pos.getX(), node.pos.getY() + 1, node.pos.getZ());
+		Block block1 = world.getBlockState(blockPos).getBlock();
+		if (!block1.isPassable(world, blockPos))
+		{
+			return true;
+		}
+
+		blockPos.setPos(node.pos.getX(), node.pos.getY() + 2, node.pos.getZ());
+		Block block2 = world.getBlockState(blockPos).getBlock();
+		if (!block2.isPassable(world, blockPos))
 		{
 			return true;
 		}
+
+		return false;
 	}
 
-	private boolean doKeyStacksMatch(ItemStack sourceKey, ItemStack destinationKey)
+	static boolean doKeyStacksMatch(ItemStack sourceKey, ItemStack destinationKey)
 	{
 		// if both keys are null, they match (obviously!)
 		if (sourceKey.isEmpty() && destinationKey.isEmpty())
@@ -264,9 +694,8 @@ public class TeleporterNetwork extends WorldSavedData
 					if (sourceKey.getItem() == Items.WRITTEN_BOOK)
 					{
 						// ensure that the book authors and titles match
-						String sourceBookNBT = sourceKey.getTagCompound().getString("author") + ":" + sourceKey.getTagCompound().getString("title");
-						String destinationBookNBT = destinationKey.getTagCompound().getString("author") + ":" + destinationKey.getTagCompound().getString("title");
-						if (!sourceBookNBT.equals(destinationBookNBT)) return false;
+						if (!sourceKey.getTagCompound().getString("author").equals(destinationKey.getTagCompound().getString("author"))) return false;
+						if (!sourceKey.getTagCompound().getString("title").equals(destinationKey.getTagCompound().getString("title"))) return false;
 					}
 					// if it's any other type of item
 					else
@@ -285,9 +714,111 @@ public class TeleporterNetwork extends WorldSavedData
 		}
 	}
 
-	private TextComponentTranslation getMessage(String messageName)
+
+
+	static enum DestinationCheck
+	{
+		VALID,
+		SKIPPED,
+		BLOCKED,
+		DISABLED,
+		DENIED
+	}
+
+
+
+	/**
+	 * the number of nodes a walk checked, and how many of them were obstructed, powered or refused by the dimension policy
+	 */
+	public static final class Scan
+	{
+		private int length = 0;
+		private int blocked = 0;
+		private int disabled = 0;
+		private int denied = 0;
+
+		public int getLength()
+		{
+			return this.length;
+		}
+
+		public int getBlocked()
+		{
+			return this.blocked;
+		}
+
+		public int getDisabled()
+		{
+			return this.disabled;
+		}
+
+		public int getDenied()
+		{
+			return this.denied;
+		}
+	}
+
+
+
+	/**
+	 * looks teleporters up in the server's loaded worlds, loading destination dimensions on demand
+	 */
+	private class ServerWorldAccess implements TeleporterWorldAccess
+	{
+		@Override
+		public boolean isLoaded(int dimension)
+		{
+			return DimensionManager.getWorld(dimension) != null;
+		}
+
+		@Override
+		public boolean load(int dimension)
+		{
+			return TeleporterDimensionLoader.load(dimension) != null;
+		}
+
+		@Override
+		public ItemStack getKey(TeleporterNode node)
+		{
+			WorldServer world = DimensionManager.getWorld(node.dimension);
+			if (world == null) return null;
+
+			TeleporterMetrics.recordTileEntityLookup(world.getChunkProvider().getLoadedChunk(node.pos.getX() >> 4, node.pos.getZ() >> 4) != null);
+			TileEntity tileEntity = world.getTileEntity(node.pos);
+			if (!(tileEntity instanceof TileEntityTeleporter)) return null;
+
+			return tileEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null).getStackInSlot(0);
+		}
+
+		@Override
+		public boolean isObstructed(TeleporterNode node)
+		{
+			return TeleporterNetwork.this.isObstructed(DimensionManager.getWorld(node.dimension), node);
+		}
+
+		@Override
+		public boolean isPowered(TeleporterNode node)
+		{
+			TileEntity tileEntity = DimensionManager.getWorld(node.dimension).getTileEntity(node.pos);
+			return tileEntity instanceof TileEntityTeleporter && ((TileEntityTeleporter)tileEntity).isPowered();
+		}
+	}
+
+
+
+	public static class EventHandler
 	{
-		return new TextComponentTranslation("message." + TeleporterMod.MODID + '_' + this.getClass().getSimpleName() + '.' + messageName);
+		@SubscribeEvent
+		public void onServerTick(TickEvent.ServerTickEvent event)
+		{
+			if (event.phase == TickEvent.Phase.END && !pendingNetworks.isEmpty())
+			{
+				for (TeleporterNetwork network : new ArrayList<TeleporterNetwork>(pendingNetworks))
+				{
+					network.applyPendingNodes();
+				}
+			}
+		}
 	}
 
 }
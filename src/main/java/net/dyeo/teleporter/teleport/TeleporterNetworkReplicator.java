@@ -0,0 +1,231 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import net.dyeo.teleporter.common.network.MessageNetworkSync;
+import net.dyeo.teleporter.common.network.PacketHandler;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.World;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.PlayerEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * TeleporterNetworkReplicator keeps each client's copy of the network up to date, for map and gui integrations.
+ *
+ * a player is sent every public teleporter and their own private ones when they log in. after that, once per tick, the
+ * snapshot published since the last tick is compared with the one before it and each player is sent only the changes
+ * they can see. dimensions whose nodes are shared between the two snapshots haven't changed, so they aren't compared.
+ */
+public class TeleporterNetworkReplicator
+{
+
+	private static final int MAX_ENTRIES_PER_MESSAGE = 4096;
+	// the fewest ticks between full copies sent to a player who asked for one
+	private static final int RESYNC_INTERVAL = 100;
+
+	// the snapshot the clients have been brought up to
+	private static TeleporterNetworkSnapshot replicated = TeleporterNetworkSnapshot.EMPTY;
+	// the generation each player's copy is at, which is older than the replicated one if the changes since weren't theirs to see
+	private static final Map<UUID, Long> playerGenerations = new HashMap<UUID, Long>();
+	// the tick each player was last sent a full copy they asked for, and the players waiting for their next one
+	private static final Map<UUID, Integer> playerResyncs = new HashMap<UUID, Integer>();
+	private static final Set<UUID> pendingResyncs = new HashSet<UUID>();
+
+
+	/**
+	 * sends the player a full copy of the network, replacing whatever their client has
+	 */
+	public static void sendFull(EntityPlayerMP player)
+	{
+		List<MessageNetworkSync.Entry> entries = new ArrayList<MessageNetworkSync.Entry>();
+		for (TeleporterNode node : replicated.getNodes())
+		{
+			if (isVisible(node, player)) entries.add(new MessageNetworkSync.Entry(MessageNetworkSync.ADD, node));
+		}
+		send(player, true, replicated.getGeneration(), entries);
+	}
+
+	/**
+	 * sends the player a full copy of the network when their client asks for one, at most once every RESYNC_INTERVAL
+	 * ticks. requests made sooner than that are answered by a single copy once the interval has passed
+	 */
+	public static void requestFull(EntityPlayerMP player)
+	{
+		UUID playerId = player.getUniqueID();
+		Integer lastResync = playerResyncs.get(playerId);
+		int tickCounter = player.mcServer.getTickCounter();
+
+		if (lastResync == null || tickCounter - lastResync >= RESYNC_INTERVAL)
+		{
+			pendingResyncs.remove(playerId);
+			playerResyncs.put(playerId, tickCounter);
+			sendFull(player);
+		}
+		else
+		{
+			pendingResyncs.add(playerId);
+		}
+	}
+
+	public static void clear()
+	{
+		replicated = TeleporterNetworkSnapshot.EMPTY;
+		playerGenerations.clear();
+		playerResyncs.clear();
+		pendingResyncs.clear();
+	}
+
+
+	@SubscribeEvent
+	public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event)
+	{
+		if (event.player instanceof EntityPlayerMP) sendFull((EntityPlayerMP)event.player);
+	}
+
+	@SubscribeEvent
+	public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event)
+	{
+		playerGenerations.remove(event.player.getUniqueID());
+		playerResyncs.remove(event.player.getUniqueID());
+		pendingResyncs.remove(event.player.getUniqueID());
+	}
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		if (event.phase != TickEvent.Phase.END) return;
+
+		this.replicate();
+		if (!pendingResyncs.isEmpty()) this.sendPendingResyncs();
+	}
+
+	private void replicate()
+	{
+		World world = DimensionManager.getWorld(0);
+		if (world == null) return;
+
+		TeleporterNetworkSnapshot latest = TeleporterNetwork.get(world).getSnapshot();
+		if (latest == replicated) return;
+
+		List<TeleporterNode[]> changes = getChanges(replicated, latest);
+		replicated = latest;
+		if (changes.isEmpty()) return;
+
+		for (EntityPlayerMP player : FMLCommonHandler.instance().getMinecraftServerInstance().getPlayerList().getPlayers())
+		{
+			List<MessageNetworkSync.Entry> entries = new ArrayList<MessageNetworkSync.Entry>();
+			for (TeleporterNode[] change : changes)
+			{
+				boolean wasVisible = (change[0] != null && isVisible(change[0], player));
+				boolean isVisible = (change[1] != null && isVisible(change[1], player));
+
+				if (isVisible)
+				{
+					entries.add(new MessageNetworkSync.Entry(wasVisible ? MessageNetworkSync.UPDATE : MessageNetworkSync.ADD, change[1]));
+				}
+				else if (wasVisible)
+				{
+					entries.add(new MessageNetworkSync.Entry(MessageNetworkSync.REMOVE, change[0]));
+				}
+			}
+
+			// players who can't see any of the changes are left at their generation
+			if (!entries.isEmpty()) send(player, false, latest.getGeneration(), entries);
+		}
+	}
+
+
+	private void sendPendingResyncs()
+	{
+		MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+		Iterator<UUID> iterator = pendingResyncs.iterator();
+		while (iterator.hasNext())
+		{
+			UUID playerId = iterator.next();
+			if (server.getTickCounter() - playerResyncs.get(playerId) < RESYNC_INTERVAL) continue;
+
+			iterator.remove();
+			EntityPlayerMP player = server.getPlayerList().getPlayerByUUID(playerId);
+			if (player != null)
+			{
+				playerResyncs.put(playerId, server.getTickCounter());
+				sendFull(player);
+			}
+		}
+	}
+
+
+	/**
+	 * gets each node that was added, removed or changed between the snapshots, as a pair of its previous and current
+	 * node, either of which is null if it was added or removed
+	 */
+	private static List<TeleporterNode[]> getChanges(TeleporterNetworkSnapshot previous, TeleporterNetworkSnapshot current)
+	{
+		List<TeleporterNode[]> changes = new ArrayList<TeleporterNode[]>();
+
+		Set<Integer> dimensions = new HashSet<Integer>(previous.getDimensions());
+		dimensions.addAll(current.getDimensions());
+		for (int dimension : dimensions)
+		{
+			List<TeleporterNode> previousNodes = previous.getNodes(dimension);
+			List<TeleporterNode> currentNodes = current.getNodes(dimension);
+			if (previousNodes == currentNodes) continue;
+
+			for (TeleporterNode node : currentNodes)
+			{
+				TeleporterNode previousNode = previous.getNode(node.pos, dimension);
+				if (previousNode == null || previousNode.type != node.type || !Objects.equals(previousNode.owner, node.owner))
+				{
+					changes.add(new TeleporterNode[] { previousNode, node });
+				}
+			}
+			for (TeleporterNode previousNode : previousNodes)
+			{
+				if (current.getNode(previousNode.pos, dimension) == null)
+				{
+					changes.add(new TeleporterNode[] { previousNode, null });
+				}
+			}
+		}
+		return changes;
+	}
+
+	private static boolean isVisible(TeleporterNode node, EntityPlayerMP player)
+	{
+		return node.owner == null || node.owner.equals(player.getUniqueID());
+	}
+
+	/**
+	 * sends the entries in messages of a bounded size. only the first message of a full copy replaces the client's copy,
+	 * and only the last one moves the client on to the new generation
+	 */
+	private static void send(EntityPlayerMP player, boolean full, long generation, List<MessageNetworkSync.Entry> entries)
+	{
+		Long playerGeneration = playerGenerations.get(player.getUniqueID());
+		long baseGeneration = (full || playerGeneration == null ? generation : playerGeneration);
+
+		int start = 0;
+		do
+		{
+			int end = Math.min(start + MAX_ENTRIES_PER_MESSAGE, entries.size());
+			boolean last = (end == entries.size());
+			PacketHandler.INSTANCE.sendTo(new MessageNetworkSync(full && start == 0, baseGeneration, last ? generation : baseGeneration, new ArrayList<MessageNetworkSync.Entry>(entries.subList(start, end))), player);
+			start = end;
+		}
+		while (start < entries.size());
+
+		playerGenerations.put(player.getUniqueID(), generation);
+	}
+
+}
@@ -0,0 +1,396 @@
+package net.dyeo.teleporter.teleport;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.init.ModBlocks;
+import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.world.WorldProvider;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.storage.RegionFileCache;
+import net.minecraft.world.storage.ThreadedFileIOBase;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.util.Constants.NBT;
+
+/**
+ * TeleporterNetworkScanner checks that every node in the network still has a teleporter in the world.
+ * Nodes in unloaded chunks are checked against the region files on a fork-join pool, then orphaned nodes are
+ * pruned and nodes with the wrong type are repaired back on the server thread.
+ *
+ */
+public class TeleporterNetworkScanner
+{
+
+	private static final AtomicBoolean running = new AtomicBoolean(false);
+
+
+	/**
+	 * starts a scan of the network in the background, returning false if a scan is already running.
+	 * must be called on the server thread
+	 */
+	public static boolean start(final MinecraftServer server, @Nullable final ICommandSender sender)
+	{
+		if (!running.compareAndSet(false, true)) return false;
+
+		final TeleporterNetwork network = TeleporterNetwork.get(server.getEntityWorld());
+		final int teleporterId = Block.getIdFromBlock(ModBlocks.TELEPORTER);
+		final String tileEntityId = String.valueOf(TileEntity.getKey(TileEntityTeleporter.class));
+
+		// take a copy of every node, grouping the nodes in unloaded chunks so that each chunk is only read once
+		final List<NodeCheck> checks = new ArrayList<NodeCheck>();
+		final Map<Integer, Map<Long, ChunkScan>> scans = new HashMap<Integer, Map<Long, ChunkScan>>();
+		final List<ChunkScan> scanList = new ArrayList<ChunkScan>();
+		final Map<Integer, File> directories = new HashMap<Integer, File>();
+
+		for (TeleporterNode node : network.getNodes())
+		{
+			NodeCheck check = new NodeCheck(node);
+			checks.add(check);
+
+			if (isChunkLoaded(check)) continue; // checked directly when the scan is applied
+
+			if (!directories.containsKey(check.dimension))
+			{
+				directories.put(check.dimension, getDimensionDirectory(check.dimension));
+			}
+			File directory = directories.get(check.dimension);
+			if (directory == null) continue;
+
+			Map<Long, ChunkScan> dimensionScans = scans.get(check.dimension);
+			if (dimensionScans == null)
+			{
+				dimensionScans = new HashMap<Long, ChunkScan>();
+				scans.put(check.dimension, dimensionScans);
+			}
+
+			long chunkKey = ChunkPos.asLong(check.pos.getX() >> 4, check.pos.getZ() >> 4);
+			ChunkScan scan = dimensionScans.get(chunkKey);
+			if (scan == null)
+			{
+				scan = new ChunkScan(directory, check.pos.getX() >> 4, check.pos.getZ() >> 4, teleporterId, tileEntityId);
+				dimensionScans.put(chunkKey, scan);
+				scanList.add(scan);
+			}
+			scan.checks.add(check);
+		}
+
+		Thread thread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+				try
+				{
+					// make sure recently unloaded chunks have been written before reading them back
+					ThreadedFileIOBase.getThreadedIOInstance().waitForFinish();
+					pool.invokeAll(scanList);
+				}
+				catch (Exception ex)
+				{
+					TeleporterMod.LOGGER.catching(ex);
+				}
+				finally
+				{
+					pool.shutdown();
+					server.addScheduledTask(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							try
+							{
+								apply(network, checks, sender);
+							}
+							finally
+							{
+								running.set(false);
+							}
+						}
+					});
+				}
+			}
+		}, "Teleporter Network Scanner");
+		thread.setDaemon(true);
+		thread.start();
+		return true;
+	}
+
+	/**
+	 * forgets a scan left running by a server that has stopped, so the next server can start one
+	 */
+	public static void clear()
+	{
+		running.set(false);
+	}
+
+
+	/**
+	 * prunes or repairs the nodes that failed their check, queueing every change so the network applies them as one
+	 * batch. runs on the server thread
+	 */
+	private static void apply(TeleporterNetwork network, List<NodeCheck> checks, @Nullable ICommandSender sender)
+	{
+		int pruned = 0;
+		int repaired = 0;
+		int unchecked = 0;
+
+		// the snapshot is up to date once the pending changes are applied, and stays so until ours are
+		network.applyPendingNodes();
+		TeleporterNetworkSnapshot snapshot = network.getSnapshot();
+
+		for (NodeCheck check : checks)
+		{
+			// if the chunk is loaded now, the world is more up to date than the region file
+			if (isChunkLoaded(check))
+			{
+				check.checkLoaded(DimensionManager.getWorld(check.dimension));
+			}
+
+			// the node may have been removed while the scan was running
+			if (check.result != Result.UNKNOWN && snapshot.getNode(check.pos, check.dimension) == null) continue;
+
+			switch (check.result)
+			{
+				case MISSING:
+					network.queueRemoveNode(check.pos, check.dimension);
+					pruned++;
+					break;
+				case WRONG_TYPE:
+					network.queueNode(new TeleporterNode(check.pos, check.dimension, check.actualType, check.owner));
+					repaired++;
+					break;
+				case UNKNOWN:
+					unchecked++;
+					break;
+				default:
+					break;
+			}
+		}
+		network.applyPendingNodes();
+
+		TeleporterMod.LOGGER.info("Teleporter network scan complete: {} nodes checked, {} pruned, {} repaired, {} could not be checked", checks.size(), pruned, repaired, unchecked);
+		if (sender != null)
+		{
+			sender.sendMessage(new TextComponentTranslation("commands.teleporter.check.finished", checks.size(), pruned, repaired, unchecked));
+		}
+	}
+
+
+	private static boolean isChunkLoaded(NodeCheck check)
+	{
+		WorldServer world = DimensionManager.getWorld(check.dimension);
+		return world != null && world.getChunkProvider().getLoadedChunk(check.pos.getX() >> 4, check.pos.getZ() >> 4) != null;
+	}
+
+	@Nullable
+	private static File getDimensionDirectory(int dimension)
+	{
+		WorldServer world = DimensionManager.getWorld(dimension);
+		if (world != null) return world.getChunkSaveLocation();
+
+		if (!DimensionManager.isDimensionRegistered(dimension)) return null;
+		try
+		{
+			WorldProvider provider = DimensionManager.createProviderFor(dimension);
+			String saveFolder = provider.getSaveFolder();
+			File root = DimensionManager.getCurrentSaveRootDirectory();
+			return saveFolder == null ? root : new File(root, saveFolder);
+		}
+		catch (Exception ex)
+		{
+			TeleporterMod.LOGGER.catching(ex);
+			return null;
+		}
+	}
+
+
+
+	private static enum Result
+	{
+		UNKNOWN,
+		VALID,
+		MISSING,
+		WRONG_TYPE
+	}
+
+
+
+	private static class NodeCheck
+	{
+		private final BlockPos pos;
+		private final int dimension;
+		private final BlockTeleporter.EnumType type;
+		private final UUID owner;
+
+		private volatile Result result = Result.UNKNOWN;
+		private volatile BlockTeleporter.EnumType actualType;
+
+		private NodeCheck(TeleporterNode node)
+		{
+			this.pos = node.pos;
+			this.dimension = node.dimension;
+			this.type = node.type;
+			this.owner = node.owner;
+		}
+
+		private void setFound(BlockTeleporter.EnumType actualType)
+		{
+			this.actualType = actualType;
+			this.result = (actualType == this.type ? Result.VALID : Result.WRONG_TYPE);
+		}
+
+		private void checkLoaded(WorldServer world)
+		{
+			IBlockState state = world.getBlockState(this.pos);
+			if (state.getBlock() == ModBlocks.TELEPORTER && world.getTileEntity(this.pos) instanceof TileEntityTeleporter)
+			{
+				this.setFound(state.getValue(BlockTeleporter.TYPE));
+			}
+			else
+			{
+				this.result = Result.MISSING;
+			}
+		}
+
+		private void checkSaved(@Nullable NBTTagCompound level, int teleporterId, String tileEntityId)
+		{
+			if (level == null)
+			{
+				this.result = Result.MISSING;
+				return;
+			}
+
+			int x = this.pos.getX();
+			int y = this.pos.getY();
+			int z = this.pos.getZ();
+
+			boolean hasTileEntity = false;
+			NBTTagList tileEntities = level.getTagList("TileEntities", NBT.TAG_COMPOUND);
+			for (int i = 0; i < tileEntities.tagCount(); ++i)
+			{
+				NBTTagCompound tileEntity = tileEntities.getCompoundTagAt(i);
+				if (tileEntity.getInteger("x") == x && tileEntity.getInteger("y") == y && tileEntity.getInteger("z") == z)
+				{
+					hasTileEntity = tileEntityId.equals(tileEntity.getString("id"));
+					break;
+				}
+			}
+
+			int blockId = -1;
+			int blockMeta = 0;
+			NBTTagList sections = level.getTagList("Sections", NBT.TAG_COMPOUND);
+			for (int i = 0; i < sections.tagCount(); ++i)
+			{
+				NBTTagCompound section = sections.getCompoundTagAt(i);
+				if (section.getByte("Y") == (y >> 4))
+				{
+					int index = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+					blockId = section.getByteArray("Blocks")[index] & 255;
+					if (section.hasKey("Add", NBT.TAG_BYTE_ARRAY))
+					{
+						blockId |= getNibble(section.getByteArray("Add"), index) << 8;
+					}
+					blockMeta = getNibble(section.getByteArray("Data"), index);
+					break;
+				}
+			}
+
+			if (hasTileEntity && blockId == teleporterId)
+			{
+				this.setFound(BlockTeleporter.EnumType.byMetadata(blockMeta));
+			}
+			else
+			{
+				this.result = Result.MISSING;
+			}
+		}
+
+		private static int getNibble(byte[] data, int index)
+		{
+			return (index & 1) == 0 ? data[index >> 1] & 15 : (data[index >> 1] >> 4) & 15;
+		}
+	}
+
+
+
+	private static class ChunkScan implements Callable<Void>
+	{
+		private final File directory;
+		private final int chunkX;
+		private final int chunkZ;
+		private final int teleporterId;
+		private final String tileEntityId;
+		private final List<NodeCheck> checks = new ArrayList<NodeCheck>();
+
+		private ChunkScan(File directory, int chunkX, int chunkZ, int teleporterId, String tileEntityId)
+		{
+			this.directory = directory;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+			this.teleporterId = teleporterId;
+			this.tileEntityId = tileEntityId;
+		}
+
+		@Override
+		public Void call()
+		{
+			try
+			{
+				NBTTagCompound level = null;
+
+				// don't ask the region cache for a region file that doesn't exist, it would create an empty one
+				File regionFile = new File(new File(this.directory, "region"), "r." + (this.chunkX >> 5) + "." + (this.chunkZ >> 5) + ".mca");
+				if (regionFile.exists())
+				{
+					DataInputStream stream = RegionFileCache.getChunkInputStream(this.directory, this.chunkX, this.chunkZ);
+					if (stream != null)
+					{
+						try
+						{
+							level = CompressedStreamTools.read(stream).getCompoundTag("Level");
+						}
+						finally
+						{
+							stream.close();
+						}
+					}
+				}
+
+				for (NodeCheck check : this.checks)
+				{
+					check.checkSaved(level, this.teleporterId, this.tileEntityId);
+				}
+			}
+			catch (IOException ex)
+			{
+				// leave the results unknown so that nothing is pruned because of a read error
+				TeleporterMod.LOGGER.warn("Unable to read chunk [{}, {}] in {}", this.chunkX, this.chunkZ, this.directory, ex);
+			}
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * TeleporterNetworkSnapshot is an immutable copy of the network, published by the server thread after each change
+ * so that other threads can query the network without touching the live node list.
+ * nodes are immutable themselves, so the snapshot shares them with the network instead of copying them.
+ *
+ */
+public final class TeleporterNetworkSnapshot
+{
+
+	public static final TeleporterNetworkSnapshot EMPTY = new TeleporterNetworkSnapshot(0L, Collections.<UUID, ImmutableList<TeleporterNode>>emptyMap(), ImmutableMap.<Integer, DimensionNodes>of());
+
+	private final long generation;
+	// the public network is under the null owner, which guava's maps don't allow
+	private final Map<UUID, ImmutableList<TeleporterNode>> partitions;
+	private final ImmutableMap<Integer, DimensionNodes> dimensions;
+	private final int size;
+
+	// built from the partitions the first time they are asked for, so publishing a snapshot doesn't copy every node
+	private volatile ImmutableList<TeleporterNode> nodes = null;
+	private volatile ImmutableListMultimap<BlockTeleporter.EnumType, TeleporterNode> nodesByType = null;
+
+	private TeleporterNetworkSnapshot(long generation, Map<UUID, ImmutableList<TeleporterNode>> partitions, ImmutableMap<Integer, DimensionNodes> dimensions)
+	{
+		this.generation = generation;
+		this.partitions = partitions;
+		this.dimensions = dimensions;
+
+		int size = 0;
+		for (DimensionNodes dimensionNodes : dimensions.values())
+		{
+			size += dimensionNodes.nodes.size();
+		}
+		this.size = size;
+	}
+
+
+	/**
+	 * creates the next snapshot of the network. only the dimensions and partitions that changed are copied, the rest
+	 * are shared with the previous snapshot
+	 *
+	 * @param nodeIndex the nodes of each dimension, by position
+	 * @param partitions the nodes of each owner's network, in the order the network walks them
+	 * @param changedDimensions the dimensions that changed, or null if every dimension should be copied
+	 * @param changedOwners the owners whose networks changed, or null if every partition should be copied
+	 */
+	static TeleporterNetworkSnapshot create(TeleporterNetworkSnapshot previous, Map<Integer, Map<BlockPos, TeleporterNode>> nodeIndex, Map<UUID, List<TeleporterNode>> partitions, @Nullable Set<Integer> changedDimensions, @Nullable Set<UUID> changedOwners)
+	{
+		Map<Integer, DimensionNodes> dimensions = new HashMap<Integer, DimensionNodes>();
+		if (changedDimensions != null) dimensions.putAll(previous.dimensions);
+		for (Integer dimension : (changedDimensions != null ? changedDimensions : nodeIndex.keySet()))
+		{
+			Map<BlockPos, TeleporterNode> dimensionNodes = nodeIndex.get(dimension);
+			if (dimensionNodes == null || dimensionNodes.isEmpty()) dimensions.remove(dimension);
+			else dimensions.put(dimension, new DimensionNodes(ImmutableList.copyOf(dimensionNodes.values())));
+		}
+
+		Map<UUID, ImmutableList<TeleporterNode>> partitionCopies = new HashMap<UUID, ImmutableList<TeleporterNode>>();
+		if (changedOwners != null) partitionCopies.putAll(previous.partitions);
+		for (UUID owner : (changedOwners != null ? changedOwners : partitions.keySet()))
+		{
+			List<TeleporterNode> partition = partitions.get(owner);
+			if (partition == null || partition.isEmpty()) partitionCopies.remove(owner);
+			else partitionCopies.put(owner, ImmutableList.copyOf(partition));
+		}
+
+		return new TeleporterNetworkSnapshot(previous.generation + 1, Collections.unmodifiableMap(partitionCopies), ImmutableMap.copyOf(dimensions));
+	}
+
+
+	/**
+	 * the generation increases by one every time a new snapshot is published
+	 */
+	public long getGeneration()
+	{
+		return this.generation;
+	}
+
+	/**
+	 * gets every node, grouped by the network they belong to, with each network's nodes in the order it walks them
+	 */
+	public ImmutableList<TeleporterNode> getNodes()
+	{
+		ImmutableList<TeleporterNode> nodes = this.nodes;
+		if (nodes == null)
+		{
+			ImmutableList.Builder<TeleporterNode> builder = ImmutableList.builder();
+			for (ImmutableList<TeleporterNode> partition : this.partitions.values())
+			{
+				builder.addAll(partition);
+			}
+			this.nodes = nodes = builder.build();
+		}
+		return nodes;
+	}
+
+	public ImmutableList<TeleporterNode> getNodes(BlockTeleporter.EnumType type)
+	{
+		ImmutableListMultimap<BlockTeleporter.EnumType, TeleporterNode> nodesByType = this.nodesByType;
+		if (nodesByType == null)
+		{
+			ImmutableListMultimap.Builder<BlockTeleporter.EnumType, TeleporterNode> builder = ImmutableListMultimap.builder();
+			for (TeleporterNode node : this.getNodes())
+			{
+				builder.put(node.type, node);
+			}
+			this.nodesByType = nodesByType = builder.build();
+		}
+		return nodesByType.get(type);
+	}
+
+	/**
+	 * gets the nodes of an owner's private network, or of the public network if the owner is null, in the same order
+	 * as the network walks them. the same list is returned by later snapshots until the partition changes
+	 */
+	public ImmutableList<TeleporterNode> getPartition(@Nullable UUID owner)
+	{
+		ImmutableList<TeleporterNode> partition = this.partitions.get(owner);
+		return partition != null ? partition : ImmutableList.<TeleporterNode>of();
+	}
+
+	public ImmutableList<TeleporterNode> getNodes(int dimension)
+	{
+		DimensionNodes dimensionNodes = this.dimensions.get(dimension);
+		return dimensionNodes != null ? dimensionNodes.nodes : ImmutableList.<TeleporterNode>of();
+	}
+
+	/**
+	 * gets the nodes in a region of 32x32 chunks, using the same coordinates as region files
+	 */
+	public ImmutableList<TeleporterNode> getNodesInRegion(int dimension, int regionX, int regionZ)
+	{
+		DimensionNodes dimensionNodes = this.dimensions.get(dimension);
+		return dimensionNodes != null ? dimensionNodes.nodesByRegion.get(getRegionKey(regionX, regionZ)) : ImmutableList.<TeleporterNode>of();
+	}
+
+	@Nullable
+	public TeleporterNode getNode(BlockPos pos, int dimension)
+	{
+		DimensionNodes dimensionNodes = this.dimensions.get(dimension);
+		return dimensionNodes != null ? dimensionNodes.nodesByPos.get(pos) : null;
+	}
+
+	public ImmutableSet<Integer> getDimensions()
+	{
+		return this.dimensions.keySet();
+	}
+
+	public int size()
+	{
+		return this.size;
+	}
+
+
+	private static long getRegionKey(int regionX, int regionZ)
+	{
+		return ((long)regionX << 32) | (regionZ & 0xFFFFFFFFL);
+	}
+
+
+
+	private static final class DimensionNodes
+	{
+		private final ImmutableList<TeleporterNode> nodes;
+		private final ImmutableMap<BlockPos, TeleporterNode> nodesByPos;
+		private final ImmutableListMultimap<Long, TeleporterNode> nodesByRegion;
+
+		private DimensionNodes(ImmutableList<TeleporterNode> nodes)
+		{
+			ImmutableMap.Builder<BlockPos, TeleporterNode> nodesByPos = ImmutableMap.builder();
+			ImmutableListMultimap.Builder<Long, TeleporterNode> nodesByRegion = ImmutableListMultimap.builder();
+			for (TeleporterNode node : nodes)
+			{
+				nodesByPos.put(node.pos, node);
+				nodesByRegion.put(getRegionKey(node.pos.getX() >> 9, node.pos.getZ() >> 9), node);
+			}
+			this.nodes = nodes;
+			this.nodesByPos = nodesByPos.build();
+			this.nodesByRegion = nodesByRegion.build();
+		}
+	}
+
+}
@@ -1,42 +1,51 @@
 package net.dyeo.teleporter.teleport;
 
+import java.util.UUID;
+import javax.annotation.Nullable;
 import net.dyeo.teleporter.block.BlockTeleporter;
 import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.WorldServer;
 import net.minecraftforge.common.DimensionManager;
 
 
 /**
  * TeleporterNode contains the members that must be saved to the world.
  * It also contains methods to save and write and read the data to NBT.
+ * nodes are immutable, so they can be shared with snapshots and read from any thread. a changed teleporter is given a
+ * new node.
  *
  */
-public class TeleporterNode
+public final class TeleporterNode
 {
 
-	public BlockPos pos;
-	public int dimension;
-	public BlockTeleporter.EnumType type;
+	public final BlockPos pos;
+	public final int dimension;
+	public final BlockTeleporter.EnumType type;
+	// the player that owns this teleporter, or null if it belongs to the public network
+	public final UUID owner;
 
-	public TeleporterNode()
+	public TeleporterNode(BlockPos pos, int dimension, BlockTeleporter.EnumType type)
 	{
-		this.pos = new BlockPos(0, 0, 0);
-		this.dimension = 0;
-		this.type = BlockTeleporter.EnumType.REGULAR;
+		this(pos, dimension, type, null);
 	}
 
-//	public TeleporterNode(BlockPos pos, int dimension, BlockTeleporter.EnumType type)
-//	{
-//		this.pos = pos;
-//		this.dimension = dimension;
-//		this.type = type;
-//	}
+	public TeleporterNode(BlockPos pos, int dimension, BlockTeleporter.EnumType type, @Nullable UUID owner)
+	{
+		this.pos = pos.toImmutable();
+		this.dimension = dimension;
+		this.type = type;
+		this.owner = owner;
+	}
 
-	public TeleporterNode(NBTTagCompound compound)
+	public TeleporterNode(NBTTagCompound nbt)
 	{
-		this.readFromNBT(compound);
+		this.pos = new BlockPos(nbt.getInteger("x"), nbt.getInteger("y"), nbt.getInteger("z"));
+		this.dimension = nbt.getInteger("dim");
+		this.type = BlockTeleporter.EnumType.byMetadata(nbt.getInteger("type"));
+		this.owner = (nbt.hasUniqueId("owner") ? nbt.getUniqueId("owner") : null);
 	}
 
 
@@ -47,22 +56,15 @@ public class TeleporterNode
 		nbt.setInteger("z", this.pos.getZ());
 		nbt.setInteger("dim", this.dimension);
 		nbt.setInteger("type", this.type.ordinal());
+		if (this.owner != null) nbt.setUniqueId("owner", this.owner);
 		return nbt;
 	}
 
-	public void readFromNBT(NBTTagCompound nbt)
-	{
-		int x = nbt.getInteger("x");
-		int y = nbt.getInteger("y");
-		int z = nbt.getInteger("z");
-		this.pos = new BlockPos(x, y, z);
-		this.dimension = nbt.getInteger("dim");
-		this.type = BlockTeleporter.EnumType.byMetadata(nbt.getInteger("type"));
-	}
-
 	public TileEntityTeleporter getTileEntity()
 	{
-		TileEntity result = DimensionManager.getWorld(this.dimension).getTileEntity(this.pos);
+		WorldServer world = DimensionManager.getWorld(this.dimension);
+		if (world == null) return null;
+		TileEntity result = world.getTileEntity(this.pos);
 		if (result instanceof TileEntityTeleporter) return (TileEntityTeleporter) result;
 		else return null;
 	}
@@ -71,7 +73,7 @@ public class TeleporterNode
 	@Override
 	public String toString()
 	{
-		return "{ \"x\":" + this.pos.getX() + ", \"y\":" + this.pos.getY() + ", \"z\":" + this.pos.getZ() + ", \"dim\":" + this.dimension + ", \"type\":" + this.type + " }";
+		return "{ \"x\":" + this.pos.getX() + ", \"y\":" + this.pos.getY() + ", \"z\":" + this.pos.getZ() + ", \"dim\":" + this.dimension + ", \"type\":" + this.type + ", \"owner\":" + (this.owner != null ? "\"" + this.owner + "\"" : "null") + " }";
 	}
 
 	public boolean matches(BlockPos pos, int dimension)
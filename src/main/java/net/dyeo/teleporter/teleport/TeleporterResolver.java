@@ -0,0 +1,287 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.dyeo.teleporter.TeleporterMod;
+import net.dyeo.teleporter.capabilities.CapabilityTeleportHandler;
+import net.dyeo.teleporter.capabilities.EnumTeleportStatus;
+import net.dyeo.teleporter.capabilities.ITeleportHandler;
+import net.dyeo.teleporter.tileentity.TileEntityTeleporter;
+import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+import net.minecraftforge.items.CapabilityItemHandler;
+
+/**
+ * TeleporterResolver resolves teleport destinations on worker threads, when asyncResolution is enabled.
+ * workers walk the source's network in an immutable snapshot against a mirror of each teleporter's key and powered
+ * state, and hand a short list of candidates back to the server thread, which re-validates them on the next tick.
+ * the server thread never walks the part of the network a worker has already ruled out.
+ *
+ */
+public class TeleporterResolver
+{
+
+	// the number of candidates returned by a worker, in network order
+	private static final int MAX_CANDIDATES = 8;
+
+	private static final ConcurrentMap<Integer, ConcurrentMap<BlockPos, MirroredState>> states = new ConcurrentHashMap<Integer, ConcurrentMap<BlockPos, MirroredState>>();
+	private static final Queue<Request> resolved = new ConcurrentLinkedQueue<Request>();
+
+	private static ExecutorService executor = null;
+
+
+	/**
+	 * records the key, powered state and name of a teleporter for the workers, and for the server thread to rule out
+	 * teleporters in unloaded dimensions and list destinations without loading them. called on the server thread
+	 */
+	public static void updateState(TileEntityTeleporter tileEntity)
+	{
+		int dimension = tileEntity.getWorld().provider.getDimension();
+		ConcurrentMap<BlockPos, MirroredState> dimensionStates = states.get(dimension);
+		if (dimensionStates == null)
+		{
+			dimensionStates = new ConcurrentHashMap<BlockPos, MirroredState>();
+			states.put(dimension, dimensionStates);
+		}
+
+		ItemStack key = tileEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null).getStackInSlot(0);
+		dimensionStates.put(tileEntity.getPos(), new MirroredState(key.copy(), tileEntity.isPowered(), tileEntity.hasCustomName() ? tileEntity.getName() : null));
+	}
+
+	/**
+	 * gets the last recorded state of the teleporter at the node, or null if it hasn't been loaded since the server started
+	 */
+	@Nullable
+	static MirroredState getState(TeleporterNode node)
+	{
+		return getState(node.pos, node.dimension);
+	}
+
+	@Nullable
+	static MirroredState getState(BlockPos pos, int dimension)
+	{
+		ConcurrentMap<BlockPos, MirroredState> dimensionStates = states.get(dimension);
+		return (dimensionStates != null ? dimensionStates.get(pos) : null);
+	}
+
+	public static void removeState(BlockPos pos, int dimension)
+	{
+		ConcurrentMap<BlockPos, MirroredState> dimensionStates = states.get(dimension);
+		if (dimensionStates != null) dimensionStates.remove(pos);
+	}
+
+	public static void clear()
+	{
+		states.clear();
+		resolved.clear();
+	}
+
+
+	/**
+	 * queues the destination of an entity standing on the teleporter at pos to be resolved by a worker.
+	 * the entity is marked as resolving so it isn't queued again while it waits
+	 */
+	public static void request(EntityLivingBase entity, BlockPos pos)
+	{
+		TileEntity tileEntity = entity.world.getTileEntity(pos);
+		ITeleportHandler handler = entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
+		if (!(tileEntity instanceof TileEntityTeleporter) || handler == null) return;
+
+		TeleporterNetwork network = TeleporterNetwork.get(entity.world);
+		TeleporterNode sourceNode = network.getNode(pos, entity.world.provider.getDimension());
+		if (sourceNode == null) return;
+
+		ItemStack sourceKey = tileEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null).getStackInSlot(0);
+
+		TeleporterUtility.postPreResolve(entity, sourceNode);
+		handler.setTeleportStatus(EnumTeleportStatus.RESOLVING);
+		getExecutor().execute(new Request(entity, sourceNode, sourceKey.copy(), TeleporterEntityFilter.getCategory(entity), network.getSnapshot()));
+	}
+
+	private static synchronized ExecutorService getExecutor()
+	{
+		if (executor == null)
+		{
+			int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+			executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Teleporter Resolver %d").setDaemon(true).build());
+		}
+		return executor;
+	}
+
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		if (event.phase == TickEvent.Phase.START)
+		{
+			Request request;
+			while ((request = resolved.poll()) != null)
+			{
+				apply(request);
+			}
+		}
+	}
+
+	/**
+	 * re-validates the candidates of a resolved request against the live world and teleports the entity to the first
+	 * valid one. if the worker found nothing the teleport fails, and if every candidate has gone stale the walk carries
+	 * on from the last candidate rather than starting again from the source
+	 */
+	private static void apply(Request request)
+	{
+		EntityLivingBase entity = request.entity;
+		ITeleportHandler handler = entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
+		if (entity.isDead || handler == null || handler.getTeleportStatus() != EnumTeleportStatus.RESOLVING) return;
+
+		handler.setTeleportStatus(EnumTeleportStatus.INACTIVE);
+
+		// the entity may have stepped off the teleporter while the destination was being resolved
+		BlockPos sourcePos = request.sourceNode.pos;
+		if (entity.dimension != request.sourceNode.dimension || sourcePos.distanceSq(MathHelper.floor(entity.posX), MathHelper.floor(entity.posY + 0.5D), MathHelper.floor(entity.posZ)) > 1) return;
+
+		TeleporterNetwork network = TeleporterNetwork.get(entity.world);
+		TeleporterNode sourceNode = network.getNode(sourcePos, request.sourceNode.dimension);
+		TileEntity tileEntity = entity.world.getTileEntity(sourcePos);
+		if (sourceNode == null || !(tileEntity instanceof TileEntityTeleporter)) return;
+
+		ItemStack sourceKey = tileEntity.getCapability(CapabilityItemHandler.ITEM_HANDLER_CAPABILITY, null).getStackInSlot(0);
+		int category = TeleporterEntityFilter.getCategory(entity);
+
+		// the summary counts the teleporters the worker found powered along with those ruled out here
+		int blockedCount = 0;
+		int disabledCount = request.disabledCount;
+
+		for (TeleporterNode candidate : request.candidates)
+		{
+			TeleporterNode node = network.getNode(candidate.pos, candidate.dimension);
+			if (node == null) continue;
+
+			TeleporterNetwork.DestinationCheck check = network.checkDestination(sourceNode, sourceKey, node, category);
+			if (check == TeleporterNetwork.DestinationCheck.VALID)
+			{
+				((TileEntityTeleporter)tileEntity).setLinked(true);
+				TeleporterNetwork.sendSummary(entity, true, blockedCount, disabledCount);
+				TeleporterUtility.postPostResolve(entity, sourceNode, node);
+				TeleporterUtility.teleport(entity, sourceNode, node);
+				return;
+			}
+			else if (check == TeleporterNetwork.DestinationCheck.BLOCKED)
+			{
+				++blockedCount;
+			}
+			else if (check == TeleporterNetwork.DestinationCheck.DISABLED)
+			{
+				++disabledCount;
+			}
+		}
+
+		// if the worker walked the whole network there is nowhere else to look, otherwise it stopped at its last
+		// candidate and only the rest of the network is left to walk
+		TeleporterNode destinationNode = null;
+		if (request.candidates.size() == MAX_CANDIDATES)
+		{
+			TeleporterNode lastCandidate = request.candidates.get(MAX_CANDIDATES - 1);
+			destinationNode = network.findDestination(sourceNode, sourceKey, category, network.getNode(lastCandidate.pos, lastCandidate.dimension));
+			blockedCount += network.getLastScan().getBlocked();
+			disabledCount += network.getLastScan().getDisabled();
+		}
+		((TileEntityTeleporter)tileEntity).setLinked(destinationNode != null);
+		TeleporterNetwork.sendSummary(entity, destinationNode != null, blockedCount, disabledCount);
+
+		TeleporterUtility.postPostResolve(entity, sourceNode, destinationNode);
+		TeleporterUtility.teleport(entity, sourceNode, destinationNode);
+	}
+
+
+
+	static class MirroredState
+	{
+		final ItemStack key;
+		final boolean powered;
+		@Nullable
+		final String name;
+
+		private MirroredState(ItemStack key, boolean powered, @Nullable String name)
+		{
+			this.key = key;
+			this.powered = powered;
+			this.name = name;
+		}
+	}
+
+
+
+	private static class Request implements Runnable
+	{
+		private final EntityLivingBase entity;
+		private final TeleporterNode sourceNode;
+		private final ItemStack sourceKey;
+		private final int category;
+		private final TeleporterNetworkSnapshot snapshot;
+		private final List<TeleporterNode> candidates = new ArrayList<TeleporterNode>();
+		private int disabledCount = 0;
+
+		private Request(EntityLivingBase entity, TeleporterNode sourceNode, ItemStack sourceKey, int category, TeleporterNetworkSnapshot snapshot)
+		{
+			this.entity = entity;
+			this.sourceNode = sourceNode;
+			this.sourceKey = sourceKey;
+			this.category = category;
+			this.snapshot = snapshot;
+		}
+
+		/**
+		 * walks the source's network in the snapshot for candidate destinations, in the same order as the server thread
+		 * would. runs on a worker thread, so it must not touch the entity or the world
+		 */
+		@Override
+		public void run()
+		{
+			try
+			{
+				List<TeleporterNode> nodes = this.snapshot.getPartition(this.sourceNode.owner);
+				TeleporterNode source = this.snapshot.getNode(this.sourceNode.pos, this.sourceNode.dimension);
+				int index = (source != null ? nodes.indexOf(source) : -1);
+
+				// every node but the source, or every node if the source is missing from the snapshot
+				int count = (index >= 0 ? nodes.size() - 1 : nodes.size());
+				for (int scanned = 0; scanned < count && this.candidates.size() < MAX_CANDIDATES; ++scanned)
+				{
+					TeleporterNode node = nodes.get((index + 1 + scanned) % nodes.size());
+
+					if (node == source || !TeleporterNetwork.isCandidate(this.sourceNode, node, this.category)) continue;
+
+					// teleporters that haven't been loaded since the server started have no mirrored state, the server thread checks them
+					MirroredState state = getState(node);
+					if (state != null && !TeleporterNetwork.doKeyStacksMatch(this.sourceKey, state.key)) continue;
+					if (state != null && state.powered)
+					{
+						++this.disabledCount;
+						continue;
+					}
+
+					this.candidates.add(node);
+				}
+			}
+			catch (Exception ex)
+			{
+				TeleporterMod.LOGGER.catching(ex);
+			}
+			resolved.add(this);
+		}
+	}
+
+}
@@ -0,0 +1,253 @@
+package net.dyeo.teleporter.teleport;
+
+import com.google.common.base.Predicate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.capabilities.CapabilityTeleportHandler;
+import net.dyeo.teleporter.capabilities.EnumTeleportStatus;
+import net.dyeo.teleporter.capabilities.ITeleportHandler;
+import net.dyeo.teleporter.metrics.TeleporterMetrics;
+import net.dyeo.teleporter.metrics.TeleporterProfiler;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.item.EntityBoat;
+import net.minecraft.entity.item.EntityItem;
+import net.minecraft.entity.item.EntityMinecart;
+import net.minecraft.entity.item.EntityXPOrb;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.ClassInheritanceMultiMap;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+import net.minecraftforge.event.entity.EntityJoinWorldEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+/**
+ * TeleporterTransit handles the non-living entities that can go through teleporters: items, experience orbs,
+ * minecarts and boats. these never walk, so they are tracked from when they join a world, and the ones that moved
+ * during a tick are checked for a teleporter under them, or under the rail they are on. entities at rest are skipped,
+ * so the cost follows the traffic rather than the number of loaded teleporters. it also merges the items that arrive
+ * at the same teleporter during a tick into as few stacks as possible.
+ *
+ */
+public class TeleporterTransit
+{
+
+	// how far above the top of a teleporter a transit entity can be, enough for a minecart on a rail
+	private static final double TRANSIT_HEIGHT = 0.25D;
+
+	private static final Predicate<Entity> TRANSIT_FILTER = new Predicate<Entity>()
+	{
+		@Override
+		public boolean apply(Entity entity)
+		{
+			if (!isTransitEntity(entity) || entity.isRiding() || !TeleporterEntityFilter.isEligible(entity)) return false;
+
+			ITeleportHandler handler = entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
+			return handler != null && handler.getTeleportStatus() == EnumTeleportStatus.INACTIVE;
+		}
+	};
+
+	// the transit entities in loaded chunks on the server
+	private static final Set<Entity> entities = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+
+	// the entities found on a teleporter this tick. they are teleported after the tracked entities have been gone
+	// through, since entities arriving in another dimension join the set
+	private static final List<Entity> departures = new ArrayList<Entity>();
+	private static final BlockPos.MutableBlockPos padPos = new BlockPos.MutableBlockPos();
+
+	// items that arrived during the current tick, by destination node
+	private static final Map<TeleporterNode, List<EntityItem>> arrivedItems = new IdentityHashMap<TeleporterNode, List<EntityItem>>();
+
+
+	public static void clear()
+	{
+		entities.clear();
+		departures.clear();
+		arrivedItems.clear();
+	}
+
+	public static boolean isTransitEntity(Entity entity)
+	{
+		return entity instanceof EntityItem || entity instanceof EntityXPOrb || entity instanceof EntityMinecart || entity instanceof EntityBoat;
+	}
+
+	/**
+	 * records a non-living entity that has been teleported from the source node to the destination node
+	 */
+	public static void onTransit(Entity entity, TeleporterNode sourceNode, TeleporterNode destinationNode)
+	{
+		if (entity instanceof EntityItem)
+		{
+			List<EntityItem> items = arrivedItems.get(destinationNode);
+			if (items == null)
+			{
+				items = new ArrayList<EntityItem>();
+				arrivedItems.put(destinationNode, items);
+			}
+			items.add((EntityItem)entity);
+		}
+	}
+
+
+
+	@SubscribeEvent
+	public void onEntityJoinWorld(EntityJoinWorldEvent event)
+	{
+		if (!event.getWorld().isRemote && isTransitEntity(event.getEntity()))
+		{
+			entities.add(event.getEntity());
+		}
+	}
+
+	// entities in an unloading chunk are dropped from the world without dying, and come back as new entities
+	@SubscribeEvent
+	public void onChunkUnload(ChunkEvent.Unload event)
+	{
+		if (!event.getWorld().isRemote && !entities.isEmpty())
+		{
+			for (ClassInheritanceMultiMap<Entity> chunkEntities : event.getChunk().getEntityLists())
+			{
+				for (Entity entity : chunkEntities)
+				{
+					entities.remove(entity);
+				}
+			}
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event)
+	{
+		if (!event.getWorld().isRemote && !entities.isEmpty())
+		{
+			Iterator<Entity> iterator = entities.iterator();
+			while (iterator.hasNext())
+			{
+				if (iterator.next().world == event.getWorld()) iterator.remove();
+			}
+		}
+	}
+
+	@SubscribeEvent
+	public void onServerTick(TickEvent.ServerTickEvent event)
+	{
+		if (event.phase == TickEvent.Phase.END)
+		{
+			if (!entities.isEmpty()) departTeleporters();
+
+			if (!arrivedItems.isEmpty())
+			{
+				for (List<EntityItem> items : arrivedItems.values())
+				{
+					mergeItems(items);
+				}
+				arrivedItems.clear();
+			}
+		}
+	}
+
+	/**
+	 * teleports the tracked entities that moved onto a teleporter during the tick
+	 */
+	private static void departTeleporters()
+	{
+		Iterator<Entity> iterator = entities.iterator();
+		while (iterator.hasNext())
+		{
+			Entity entity = iterator.next();
+			if (entity.isDead)
+			{
+				iterator.remove();
+			}
+			// an entity at rest can't have come onto a teleporter since it was last checked
+			else if ((entity.posX != entity.prevPosX || entity.posY != entity.prevPosY || entity.posZ != entity.prevPosZ) && isOnTeleporter(entity))
+			{
+				departures.add(entity);
+			}
+		}
+
+		for (int i = 0; i < departures.size(); ++i)
+		{
+			Entity entity = departures.get(i);
+
+			// an earlier teleport this tick may have merged or moved it
+			if (!entity.isDead && isOnTeleporter(entity))
+			{
+				World world = entity.world;
+				BlockPos pos = padPos.toImmutable();
+
+				world.profiler.startSection("teleporter");
+				long sampleStart = TeleporterProfiler.startSample(world.provider.getDimension(), pos);
+
+				TeleporterUtility.teleport(entity, pos);
+
+				TeleporterProfiler.record(world.provider.getDimension(), pos, sampleStart);
+				world.profiler.endSection();
+			}
+		}
+		departures.clear();
+	}
+
+	/**
+	 * returns true if the entity can be teleported and rests on top of a teleporter, or on a rail on top of one.
+	 * the teleporter's position is left in padPos
+	 */
+	private static boolean isOnTeleporter(Entity entity)
+	{
+		// the entity's feet have to be within TRANSIT_HEIGHT of the top of the block below them
+		if (entity.posY - MathHelper.floor(entity.posY) > TRANSIT_HEIGHT) return false;
+
+		padPos.setPos(entity.posX, entity.posY, entity.posZ).move(EnumFacing.DOWN);
+		if (!(entity.world.getBlockState(padPos).getBlock() instanceof BlockTeleporter)) return false;
+
+		if (!TeleporterEntityFilter.isEligible(entity))
+		{
+			TeleporterMetrics.recordFiltered();
+			return false;
+		}
+		return TRANSIT_FILTER.apply(entity);
+	}
+
+	private static void mergeItems(List<EntityItem> items)
+	{
+		for (int i = 0; i < items.size(); ++i)
+		{
+			EntityItem item = items.get(i);
+			for (int j = i + 1; j < items.size() && !item.isDead; ++j)
+			{
+				EntityItem other = items.get(j);
+				if (!other.isDead && other.world == item.world)
+				{
+					mergeItem(item, other);
+				}
+			}
+		}
+	}
+
+	/**
+	 * moves the other item's stack into the item's stack if they match and fit, like the vanilla item merging
+	 */
+	private static void mergeItem(EntityItem item, EntityItem other)
+	{
+		ItemStack stack = item.getItem();
+		ItemStack otherStack = other.getItem();
+
+		if (!ItemStack.areItemsEqual(stack, otherStack) || !ItemStack.areItemStackTagsEqual(stack, otherStack)) return;
+		if (stack.getCount() + otherStack.getCount() > stack.getMaxStackSize()) return;
+
+		stack.grow(otherStack.getCount());
+		item.setItem(stack);
+		other.setDead();
+	}
+
+}
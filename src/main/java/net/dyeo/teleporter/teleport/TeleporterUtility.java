@@ -1,35 +1,115 @@
 package net.dyeo.teleporter.teleport;
 
+import com.google.common.base.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
 import net.dyeo.teleporter.TeleporterMod;
 import net.dyeo.teleporter.block.BlockTeleporter;
 import net.dyeo.teleporter.capabilities.CapabilityTeleportHandler;
 import net.dyeo.teleporter.capabilities.EnumTeleportStatus;
 import net.dyeo.teleporter.capabilities.ITeleportHandler;
+import net.dyeo.teleporter.common.config.ModConfiguration;
 import net.dyeo.teleporter.event.TeleportEvent;
-import net.dyeo.teleporter.init.ModSounds;
+import net.dyeo.teleporter.event.TeleportEventStream;
+import net.dyeo.teleporter.event.TeleportRecord;
+import net.dyeo.teleporter.metrics.TeleporterMetrics;
+import net.dyeo.teleporter.metrics.TeleporterProfiler;
+import net.dyeo.teleporter.metrics.TeleporterTrace;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityLivingBase;
 import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.network.play.server.SPacketRespawn;
+import net.minecraft.profiler.Profiler;
 import net.minecraft.server.management.PlayerList;
-import net.minecraft.util.SoundCategory;
+import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.ForgeHooks;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 
 public class TeleporterUtility
 {
 
-	public static TeleporterNode teleport(EntityLivingBase entity, BlockPos pos)
+	private static final Predicate<Entity> AREA_ENTITY_FILTER = new Predicate<Entity>()
 	{
-		boolean teleportSuccess = false;
+		@Override
+		public boolean apply(Entity entity)
+		{
+			// riders travel with their mounts
+			if (entity.isRiding()) return false;
+
+			ITeleportHandler handler = entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
+			return handler != null && handler.getTeleportStatus() == EnumTeleportStatus.INACTIVE && TeleporterEntityFilter.isEligible(entity);
+		}
+	};
 
+
+	public static TeleporterNode teleport(Entity entity, BlockPos pos)
+	{
 		TeleporterNetwork netWrapper = TeleporterNetwork.get(entity.world);
 		TeleporterNode sourceNode = netWrapper.getNode(pos, entity.world.provider.getDimension());
+
+		entity.world.profiler.startSection("resolve");
+		postPreResolve(entity, sourceNode);
 		TeleporterNode destinationNode = netWrapper.getNextNode(entity, sourceNode);
+		postPostResolve(entity, sourceNode, destinationNode);
+		entity.world.profiler.endSection();
+
+		return teleport(entity, sourceNode, destinationNode);
+	}
+
+	/**
+	 * teleports every eligible entity above an area teleporter, resolving the destination once for all of them
+	 */
+	public static TeleporterNode teleportArea(World world, BlockPos pos, @Nullable Entity trigger)
+	{
+		int radius = ModConfiguration.areaRadius;
+		AxisAlignedBB area = new AxisAlignedBB(pos.getX() - radius, pos.getY() + 1, pos.getZ() - radius, pos.getX() + 1 + radius, pos.getY() + 1 + ModConfiguration.areaHeight, pos.getZ() + 1 + radius);
+
+		List<Entity> entities = world.getEntitiesWithinAABB(Entity.class, area, AREA_ENTITY_FILTER);
+		if (entities.isEmpty()) return null;
+
+		TeleporterNetwork netWrapper = TeleporterNetwork.get(world);
+		TeleporterNode sourceNode = netWrapper.getNode(pos, world.provider.getDimension());
+		if (sourceNode == null) return null;
+
+		// the trigger receives any diagnostics, falling back to whoever is first in the area when set off by redstone
+		Entity resolvingEntity = (trigger != null ? trigger : entities.get(0));
+		world.profiler.startSection("resolve");
+		postPreResolve(resolvingEntity, sourceNode);
+		TeleporterNode destinationNode = netWrapper.getNextNode(resolvingEntity, sourceNode);
+		postPostResolve(resolvingEntity, sourceNode, destinationNode);
+		world.profiler.endSection();
+
+		for (Entity entity : entities)
+		{
+			if (entity.isDead) continue;
+
+			// the destination was chosen for the trigger, the dimension policy may still turn away other kinds of entity
+			boolean isAllowed = destinationNode != null && TeleporterDimensionPolicy.isAllowed(sourceNode.dimension, destinationNode.dimension, TeleporterEntityFilter.getCategory(entity));
+			teleport(entity, sourceNode, isAllowed ? destinationNode : null);
+		}
+		return destinationNode;
+	}
+
+	/**
+	 * teleports the entity from the source node to an already resolved destination node, or fails if it is null
+	 */
+	public static TeleporterNode teleport(Entity entity, TeleporterNode sourceNode, TeleporterNode destinationNode)
+	{
+		// the entity may change worlds, but every world shares the server's profiler
+		Profiler profiler = entity.world.profiler;
+		profiler.startSection("transfer");
+
+		long startTime = System.nanoTime();
+		boolean crossDimension = false;
+		boolean teleportSuccess = false;
+		Entity arrivedEntity = null;
 
 		ITeleportHandler handler = entity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
 
@@ -45,45 +125,81 @@ public class TeleporterUtility
 
 			if (sourceNode.type == BlockTeleporter.EnumType.REGULAR || entity.dimension == destinationNode.dimension)
 			{
-				teleportSuccess = transferToLocation(entity, x, y, z, yaw, pitch);
+				arrivedEntity = transferToLocation(entity, x, y, z, yaw, pitch) ? entity : null;
 			}
 			else
 			{
-				// don't allow cross-dimensional teleportation if the entity is a mount and the destination is another dimension
-				if (!(sourceNode.dimension != destinationNode.dimension && !entity.getPassengers().isEmpty()))
+				crossDimension = true;
+
+				// if the entity is a mount, move it together with all of its passengers
+				if (entity.getPassengers().isEmpty())
+				{
+					arrivedEntity = transferToDimension(entity, x, y, z, yaw, pitch, destinationNode.dimension);
+				}
+				else
 				{
-					if (entity instanceof EntityPlayerMP)
-					{
-						teleportSuccess = transferPlayerToDimension((EntityPlayerMP)entity, x, y, z, yaw, pitch, destinationNode.dimension);
-					}
-					else if (entity instanceof EntityLivingBase)
-					{
-						teleportSuccess = transferEntityToDimension(entity, x, y, z, yaw, pitch, destinationNode.dimension);
-					}
+					arrivedEntity = transferMountToDimension(entity, x, y, z, yaw, pitch, destinationNode.dimension);
 				}
 			}
+			teleportSuccess = (arrivedEntity != null);
+			if (teleportSuccess)
+			{
+				TeleporterDimensionLoader.onArrival(destinationNode);
+				TeleporterProfiler.recordTeleport(sourceNode.dimension, sourceNode.pos);
+			}
+		}
+
+		if (!teleportSuccess)
+		{
+			handler.setTeleportStatus(EnumTeleportStatus.FAILED);
 		}
+		TeleporterEffects.queue(sourceNode, destinationNode, teleportSuccess);
+		long nanos = System.nanoTime() - startTime;
+		TeleporterMetrics.recordTeleport(destinationNode != null, teleportSuccess, crossDimension, nanos);
+		TeleporterTrace.recordTeleport(entity, sourceNode, destinationNode, teleportSuccess, nanos);
 
-		if (teleportSuccess)
+		Entity transferredEntity = (teleportSuccess ? arrivedEntity : entity);
+		MinecraftForge.EVENT_BUS.post(new TeleportEvent.PostTransferEvent(transferredEntity, sourceNode, destinationNode, teleportSuccess));
+		TeleportEventStream.publish(TeleportRecord.Phase.POST_TRANSFER, transferredEntity, sourceNode, destinationNode, teleportSuccess);
+
+		if (entity instanceof EntityLivingBase)
 		{
-			entity.world.playSound(null, sourceNode.pos.getX(), sourceNode.pos.getY(), sourceNode.pos.getZ(), ModSounds.PORTAL_ENTER, SoundCategory.BLOCKS, 0.9f, 1.0f);
-			entity.world.playSound(null, destinationNode.pos.getX(), destinationNode.pos.getY(), destinationNode.pos.getZ(), ModSounds.PORTAL_EXIT, SoundCategory.BLOCKS, 0.9f, 1.0f);
+			MinecraftForge.EVENT_BUS.post(new TeleportEvent.EntityTeleportedEvent((EntityLivingBase)entity));
 		}
 		else
 		{
-			entity.world.playSound(null, sourceNode.pos.getX(), sourceNode.pos.getY(), sourceNode.pos.getZ(), ModSounds.PORTAL_ERROR, SoundCategory.BLOCKS, 0.9f, 1.0f);
-			handler.setTeleportStatus(EnumTeleportStatus.FAILED);
+			if (teleportSuccess) TeleporterTransit.onTransit(arrivedEntity, sourceNode, destinationNode);
+			MinecraftForge.EVENT_BUS.post(new TeleportEvent.EntityTransferredEvent(entity));
 		}
 
-		MinecraftForge.EVENT_BUS.post(new TeleportEvent.EntityTeleportedEvent(entity));
+		profiler.endSection();
 		return destinationNode;
 	}
 
 
+	/**
+	 * posts that the destination of a teleport from the source node is about to be searched for
+	 */
+	static void postPreResolve(Entity entity, TeleporterNode sourceNode)
+	{
+		MinecraftForge.EVENT_BUS.post(new TeleportEvent.PreResolveEvent(entity, sourceNode));
+		TeleportEventStream.publish(TeleportRecord.Phase.PRE_RESOLVE, entity, sourceNode, null, false);
+	}
+
+	/**
+	 * posts the destination chosen for a teleport from the source node, or null if none was found
+	 */
+	static void postPostResolve(Entity entity, TeleporterNode sourceNode, @Nullable TeleporterNode destinationNode)
+	{
+		MinecraftForge.EVENT_BUS.post(new TeleportEvent.PostResolveEvent(entity, sourceNode, destinationNode));
+		TeleportEventStream.publish(TeleportRecord.Phase.POST_RESOLVE, entity, sourceNode, destinationNode, false);
+	}
+
+
 	/**
 	 * transfers entity to a location in the same dimension
 	 */
-	private static boolean transferToLocation(EntityLivingBase entity, double posX, double posY, double posZ, float yaw, float pitch)
+	private static boolean transferToLocation(Entity entity, double posX, double posY, double posZ, float yaw, float pitch)
 	{
 		entity.setPositionAndUpdate(posX, posY, posZ);
 		entity.rotationYaw = yaw;
@@ -93,18 +209,119 @@ public class TeleporterUtility
 
 
 	/**
-	 * transfer player to dimension, retaining all information and not dying
+	 * transfers a mount and its whole passenger tree to dimension in a single pass.
+	 * every entity is dismounted, transferred once, then remounted onto its (transferred) mount at the destination.
+	 * the group moves together or not at all: every entity has to be allowed to travel and copied into the destination
+	 * before any of them leaves the source world. returns the mount in the destination world, or null if it failed
 	 */
-	private static boolean transferPlayerToDimension(EntityPlayerMP srcPlayer, double posX, double posY, double posZ, float yaw, float pitch, int dstDimension)
+	private static Entity transferMountToDimension(Entity mount, double posX, double posY, double posZ, float yaw, float pitch, int dstDimension)
 	{
-		WorldServer srcWorldServer = DimensionManager.getWorld(srcPlayer.dimension);
 		WorldServer dstWorldServer = DimensionManager.getWorld(dstDimension);
+		if (dstWorldServer == null) return null;
+
+		// collect the passenger tree breadth-first, remembering the index of each passenger's mount
+		List<Entity> entities = new ArrayList<Entity>();
+		List<Integer> mountIndices = new ArrayList<Integer>();
+		entities.add(mount);
+		mountIndices.add(-1);
+		for (int i = 0; i < entities.size(); ++i)
+		{
+			for (Entity passenger : entities.get(i).getPassengers())
+			{
+				entities.add(passenger);
+				mountIndices.add(i);
+			}
+		}
 
-		// fire player change dimension event and check that action is valid before continuing
-		if (!net.minecraftforge.common.ForgeHooks.onTravelToDimension(srcPlayer, dstDimension)) return false;
+		// if any entity is refused, nobody goes
+		for (Entity entity : entities)
+		{
+			if (!ForgeHooks.onTravelToDimension(entity, dstDimension)) return null;
+		}
 
-//		PlayerChangedDimensionEvent playerChangedDimensionEvent = new PlayerChangedDimensionEvent(srcPlayer, srcPlayer.dimension, dstDimension);
-//		if (MinecraftForge.EVENT_BUS.post(playerChangedDimensionEvent)) return false;
+		// players move themselves, everything else is copied into the destination before anything is removed
+		Entity[] transferred = new Entity[entities.size()];
+		for (int i = 0; i < entities.size(); ++i)
+		{
+			Entity entity = entities.get(i);
+			if (entity instanceof EntityPlayerMP) continue;
+
+			transferred[i] = copyEntityToWorld(entity, dstWorldServer);
+			if (transferred[i] == null) return null;
+		}
+
+		// dismount from the top down so that each entity can be moved on its own
+		for (int i = entities.size() - 1; i > 0; --i)
+		{
+			entities.get(i).dismountRidingEntity();
+		}
+
+		for (int i = 0; i < entities.size(); ++i)
+		{
+			Entity entity = entities.get(i);
+			if (entity instanceof EntityPlayerMP)
+			{
+				transferPlayerToDimension((EntityPlayerMP)entity, posX, posY, posZ, yaw, pitch, dstDimension);
+				transferred[i] = entity;
+			}
+			else
+			{
+				spawnEntityCopy(entity, transferred[i], posX, posY, posZ, yaw, pitch);
+			}
+		}
+
+		// remount every passenger onto its mount, and only report success if the whole group arrived
+		boolean allArrived = true;
+		for (int i = 0; i < entities.size(); ++i)
+		{
+			if (transferred[i].isDead || transferred[i].world != dstWorldServer)
+			{
+				allArrived = false;
+			}
+			else if (i > 0 && transferred[mountIndices.get(i)].world == dstWorldServer)
+			{
+				transferred[i].startRiding(transferred[mountIndices.get(i)], true);
+			}
+		}
+
+		return allArrived ? transferred[0] : null;
+	}
+
+
+	/**
+	 * transfers any entity to dimension, returning the entity in the destination world or null if the transfer failed
+	 */
+	private static Entity transferToDimension(Entity entity, double posX, double posY, double posZ, float yaw, float pitch, int dstDimension)
+	{
+		WorldServer dstWorldServer = DimensionManager.getWorld(dstDimension);
+		if (dstWorldServer == null) return null;
+
+		// fire the change dimension event and check that the action is valid before continuing
+		if (!ForgeHooks.onTravelToDimension(entity, dstDimension)) return null;
+
+		if (entity instanceof EntityPlayerMP)
+		{
+			transferPlayerToDimension((EntityPlayerMP)entity, posX, posY, posZ, yaw, pitch, dstDimension);
+			return entity;
+		}
+		else
+		{
+			Entity dstEntity = copyEntityToWorld(entity, dstWorldServer);
+			if (dstEntity == null) return null;
+			spawnEntityCopy(entity, dstEntity, posX, posY, posZ, yaw, pitch);
+			return dstEntity;
+		}
+	}
+
+
+	/**
+	 * transfer player to dimension, retaining all information and not dying. the caller has already checked that the
+	 * player may travel
+	 */
+	private static void transferPlayerToDimension(EntityPlayerMP srcPlayer, double posX, double posY, double posZ, float yaw, float pitch, int dstDimension)
+	{
+		WorldServer srcWorldServer = DimensionManager.getWorld(srcPlayer.dimension);
+		WorldServer dstWorldServer = DimensionManager.getWorld(dstDimension);
 
 		// (hard) set the player's dimension to the destination dimension
 		srcPlayer.dimension = dstDimension;
@@ -123,13 +340,6 @@ public class TeleporterUtility
 		srcWorldServer.removeEntity(srcPlayer); // remove the original player entity
 		srcPlayer.isDead = false; // make sure the player isn't dead (removeEntity sets player as dead)
 
-		// TODO
-//		srcPlayer.mountEntity((Entity) null);
-//		if (srcPlayer.riddenByEntity != null)
-//		{
-//			srcPlayer.riddenByEntity.mountEntity((Entity) null);
-//		}
-
 		PlayerList serverConfigurationManager = srcPlayer.mcServer.getPlayerList();
 
 		dstWorldServer.spawnEntity(srcPlayer); // spawn the player in the new world
@@ -150,40 +360,58 @@ public class TeleporterUtility
 			srcWorldServer.provider.getDimension(),
 			dstWorldServer.provider.getDimension()
 		);
-
-		return true;
 	}
 
 
 	/**
-	 * transfer entity to dimension. do not transfer player using this method! use transferPlayerToDimension
+	 * creates a copy of an entity in the destination world, without spawning it or touching the source entity.
+	 * do not copy players using this method! use transferPlayerToDimension. returns null if the copy failed
 	 */
-	private static boolean transferEntityToDimension(EntityLivingBase srcEntity, double posX, double posY, double posZ, float yaw, float pitch, int dstDimension)
+	private static Entity copyEntityToWorld(Entity srcEntity, WorldServer dstWorldServer)
 	{
-		int srcDimension = srcEntity.world.provider.getDimension();
-
-		WorldServer srcWorldServer = DimensionManager.getWorld(srcDimension);
-		WorldServer dstWorldServer = DimensionManager.getWorld(dstDimension);
-
-		if (dstWorldServer != null)
+		try
 		{
-			Class<? extends Entity> entityClass = srcEntity.getClass();
-			srcWorldServer.removeEntity(srcEntity);
-			try
-			{
-				EntityLivingBase dstEntity = (EntityLivingBase)(entityClass.getConstructor(World.class).newInstance((World) dstWorldServer));
+			Entity dstEntity = srcEntity.getClass().getConstructor(World.class).newInstance((World) dstWorldServer);
 
-				dstEntity.setPositionAndRotation(posX, posY, posZ, yaw, pitch);
-				dstEntity.forceSpawn = true;
-				dstWorldServer.spawnEntity(dstEntity);
-				dstEntity.forceSpawn = false;
-				dstWorldServer.updateEntityWithOptionalForce(dstEntity, false);
-
-				return true;
+			if (!(srcEntity instanceof EntityLivingBase))
+			{
+				// items, orbs and vehicles keep their contents, motion and teleport state in their saved data
+				NBTTagCompound entityNBT = srcEntity.writeToNBT(new NBTTagCompound());
+				entityNBT.removeTag("Dimension");
+				// passengers are moved and remounted on their own
+				entityNBT.removeTag("Passengers");
+				dstEntity.readFromNBT(entityNBT);
 			}
-			catch (Exception ex){ TeleporterMod.LOGGER.catching(ex); }
+			else
+			{
+				// carry the teleport state over so the new entity isn't sent straight back by the destination teleporter
+				ITeleportHandler srcHandler = srcEntity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
+				ITeleportHandler dstHandler = dstEntity.getCapability(CapabilityTeleportHandler.TELEPORT_CAPABILITY, null);
+				if (srcHandler != null && dstHandler != null)
+				{
+					dstHandler.deserializeNBT(srcHandler.serializeNBT());
+				}
+			}
+
+			return dstEntity;
 		}
+		catch (Exception ex){ TeleporterMod.LOGGER.catching(ex); }
+
+		return null;
+	}
 
-		return false;
+	/**
+	 * replaces an entity with its copy from copyEntityToWorld, placing the copy at the location in its world
+	 */
+	private static void spawnEntityCopy(Entity srcEntity, Entity dstEntity, double posX, double posY, double posZ, float yaw, float pitch)
+	{
+		srcEntity.world.removeEntity(srcEntity);
+
+		WorldServer dstWorldServer = (WorldServer)dstEntity.world;
+		dstEntity.setPositionAndRotation(posX, posY, posZ, yaw, pitch);
+		dstEntity.forceSpawn = true;
+		dstWorldServer.spawnEntity(dstEntity);
+		dstEntity.forceSpawn = false;
+		dstWorldServer.updateEntityWithOptionalForce(dstEntity, false);
 	}
 }
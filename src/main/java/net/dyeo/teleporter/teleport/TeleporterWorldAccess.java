@@ -0,0 +1,41 @@
+package net.dyeo.teleporter.teleport;
+
+import javax.annotation.Nullable;
+import net.minecraft.item.ItemStack;
+
+/**
+ * TeleporterWorldAccess is how a walk of the network looks at the teleporters it passes: whether their dimensions are
+ * loaded, their keys and power, and the blocks above them. the network uses the server's worlds unless it is given
+ * another, so the walk can be driven without a running server by tests, benchmarks and the trace replay.
+ *
+ */
+public interface TeleporterWorldAccess
+{
+
+	/**
+	 * whether the dimension is loaded
+	 */
+	boolean isLoaded(int dimension);
+
+	/**
+	 * loads the dimension for a destination in it, returning false if it can't be loaded
+	 */
+	boolean load(int dimension);
+
+	/**
+	 * gets the key of the teleporter at the node, or null if there is no teleporter there
+	 */
+	@Nullable
+	ItemStack getKey(TeleporterNode node);
+
+	/**
+	 * whether the two blocks above the node would stop an entity arriving on it
+	 */
+	boolean isObstructed(TeleporterNode node);
+
+	/**
+	 * whether the teleporter at the node is powered, and so disabled
+	 */
+	boolean isPowered(TeleporterNode node);
+
+}
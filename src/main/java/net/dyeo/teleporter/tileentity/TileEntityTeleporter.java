@@ -1,35 +1,74 @@
 package net.dyeo.teleporter.tileentity;
 
+import java.util.UUID;
+import javax.annotation.Nullable;
 import net.dyeo.teleporter.block.BlockTeleporter;
+import net.dyeo.teleporter.teleport.TeleporterDestinationDirectory;
 import net.dyeo.teleporter.teleport.TeleporterNetwork;
 import net.dyeo.teleporter.teleport.TeleporterNode;
+import net.dyeo.teleporter.teleport.TeleporterResolver;
+import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.NetworkManager;
+import net.minecraft.network.play.server.SPacketUpdateTileEntity;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.EnumFacing;
-import net.minecraft.util.ITickable;
+import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.TextComponentString;
 import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.util.Constants.NBT;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
 import net.minecraftforge.items.CapabilityItemHandler;
 import net.minecraftforge.items.ItemStackHandler;
 
-public class TileEntityTeleporter extends TileEntity implements ITickable
+public class TileEntityTeleporter extends TileEntity
 {
 
+	// whether the last time something stepped on the teleporter it found a destination
+	public static final byte LINK_UNKNOWN = 0;
+	public static final byte LINK_FOUND = 1;
+	public static final byte LINK_NOT_FOUND = 2;
+
+	// the parts of the teleporter clients are sent, when they change
+	private static final int SYNC_KEY = 1;
+	private static final int SYNC_POWERED = 2;
+	private static final int SYNC_LINK = 4;
+	private static final int SYNC_ALL = SYNC_KEY | SYNC_POWERED | SYNC_LINK;
+
+	// clients only draw the teleporter's status glow within this distance
+	private static final double RENDER_DISTANCE = 32.0;
+
 	private String customName = null;
-	private boolean firstUpdate = true;
 	private boolean isPowered = false;
+	private boolean isAreaMode = false;
+	private UUID owner = null;
+	private byte linkStatus = LINK_UNKNOWN;
+
+	// the parts that changed since the last update packet
+	private int syncFlags = 0;
+
+	@SideOnly(Side.CLIENT)
+	private AxisAlignedBB renderBoundingBox;
 
 	private ItemStackHandler handler = new ItemStackHandler(1)
 	{
 		@Override
 		protected void onContentsChanged(int slot)
 		{
+			if (!TileEntityTeleporter.this.world.isRemote) TeleporterDestinationDirectory.invalidate(TileEntityTeleporter.this);
 			TileEntityTeleporter.this.updateNode();
 			TileEntityTeleporter.this.markDirty();
+			if (!TileEntityTeleporter.this.world.isRemote)
+			{
+				// a new key may lead somewhere else, so the old link no longer says anything
+				TileEntityTeleporter.this.linkStatus = LINK_UNKNOWN;
+				TileEntityTeleporter.this.markForSync(SYNC_KEY | SYNC_LINK);
+			}
 		}
 	};
 
@@ -53,6 +92,8 @@ public class TileEntityTeleporter extends TileEntity implements ITickable
 	{
 		compound = super.writeToNBT(compound);
 		compound.setBoolean("powered", this.isPowered());
+		compound.setBoolean("areaMode", this.isAreaMode());
+		if (this.owner != null) compound.setUniqueId("Owner", this.owner);
 		if (this.hasCustomName()) compound.setString("CustomName", this.customName);
 		compound.setTag("Inventory", this.handler.serializeNBT());
 		return compound;
@@ -63,10 +104,74 @@ public class TileEntityTeleporter extends TileEntity implements ITickable
 	{
 		super.readFromNBT(compound);
 		if (compound.hasKey("CustomName", NBT.TAG_STRING)) this.customName = compound.getString("CustomName");
-		this.setPowered(compound.getBoolean("powered"));
+		// the chunk is still loading, the network and clients pick the state up when the teleporter loads
+		this.isPowered = compound.getBoolean("powered");
+		this.setAreaMode(compound.getBoolean("areaMode"));
+		this.owner = (compound.hasUniqueId("Owner") ? compound.getUniqueId("Owner") : null);
 		this.handler.deserializeNBT(compound.getCompoundTag("Inventory"));
 	}
 
+	/**
+	 * the full state clients get when the chunk is sent to them
+	 */
+	@Override
+	public NBTTagCompound getUpdateTag()
+	{
+		return this.writeSyncTag(super.getUpdateTag(), SYNC_ALL);
+	}
+
+	@Override
+	public void handleUpdateTag(NBTTagCompound tag)
+	{
+		this.readSyncTag(tag);
+	}
+
+	/**
+	 * only the parts that changed since the last packet are sent, or nothing if none did
+	 */
+	@Override
+	@Nullable
+	public SPacketUpdateTileEntity getUpdatePacket()
+	{
+		if (this.syncFlags == 0) return null;
+		NBTTagCompound compound = this.writeSyncTag(new NBTTagCompound(), this.syncFlags);
+		this.syncFlags = 0;
+		return new SPacketUpdateTileEntity(this.pos, 0, compound);
+	}
+
+	@Override
+	public void onDataPacket(NetworkManager net, SPacketUpdateTileEntity pkt)
+	{
+		this.readSyncTag(pkt.getNbtCompound());
+	}
+
+	private NBTTagCompound writeSyncTag(NBTTagCompound compound, int flags)
+	{
+		if ((flags & SYNC_KEY) != 0) compound.setTag("Key", this.handler.getStackInSlot(0).writeToNBT(new NBTTagCompound()));
+		if ((flags & SYNC_POWERED) != 0) compound.setBoolean("powered", this.isPowered);
+		if ((flags & SYNC_LINK) != 0) compound.setByte("link", this.linkStatus);
+		return compound;
+	}
+
+	private void readSyncTag(NBTTagCompound compound)
+	{
+		if (compound.hasKey("Key", NBT.TAG_COMPOUND)) this.handler.setStackInSlot(0, new ItemStack(compound.getCompoundTag("Key")));
+		if (compound.hasKey("powered", NBT.TAG_BYTE)) this.isPowered = compound.getBoolean("powered");
+		if (compound.hasKey("link", NBT.TAG_BYTE)) this.linkStatus = compound.getByte("link");
+	}
+
+	/**
+	 * marks parts of the teleporter as changed and has the block sent to the players watching it. the chunk's watchers
+	 * collect the changes for the tick and ask for a single update packet
+	 */
+	private void markForSync(int flags)
+	{
+		if (this.world == null || this.world.isRemote) return;
+		this.syncFlags |= flags;
+		IBlockState state = this.world.getBlockState(this.pos);
+		this.world.notifyBlockUpdate(this.pos, state, state, 2);
+	}
+
 
 
 	public boolean isPowered()
@@ -76,7 +181,63 @@ public class TileEntityTeleporter extends TileEntity implements ITickable
 
 	public void setPowered(boolean isPowered)
 	{
+		boolean wasPowered = this.isPowered;
 		this.isPowered = isPowered;
+		if (this.world != null && !this.world.isRemote)
+		{
+			TeleporterResolver.updateState(this);
+			if (isPowered != wasPowered) this.markForSync(SYNC_POWERED);
+		}
+	}
+
+	/**
+	 * whether the last time something stepped on the teleporter it found a destination, one of the LINK constants
+	 */
+	public byte getLinkStatus()
+	{
+		return this.linkStatus;
+	}
+
+	public void setLinked(boolean isLinked)
+	{
+		byte linkStatus = (isLinked ? LINK_FOUND : LINK_NOT_FOUND);
+		if (this.linkStatus != linkStatus)
+		{
+			this.linkStatus = linkStatus;
+			this.markForSync(SYNC_LINK);
+		}
+	}
+
+	/**
+	 * area teleporters move every entity standing around them at once instead of whoever walks onto them
+	 */
+	public boolean isAreaMode()
+	{
+		return this.isAreaMode;
+	}
+
+	public void setAreaMode(boolean isAreaMode)
+	{
+		this.isAreaMode = isAreaMode;
+	}
+
+	/**
+	 * the player whose private network this teleporter belongs to, or null if it is public
+	 */
+	@Nullable
+	public UUID getOwner()
+	{
+		return this.owner;
+	}
+
+	public void setOwner(@Nullable UUID owner)
+	{
+		this.owner = owner;
+		if (this.world != null)
+		{
+			this.updateNode();
+			this.markDirty();
+		}
 	}
 
 	public String getName()
@@ -93,6 +254,11 @@ public class TileEntityTeleporter extends TileEntity implements ITickable
 	public void setCustomName(String customName)
 	{
 		this.customName = customName;
+		if (this.world != null && !this.world.isRemote)
+		{
+			TeleporterDestinationDirectory.invalidate(this);
+			TeleporterResolver.updateState(this);
+		}
 	}
 
 	@Override
@@ -117,51 +283,65 @@ public class TileEntityTeleporter extends TileEntity implements ITickable
 	public void removeFromNetwork()
 	{
 		TeleporterNetwork netWrapper = TeleporterNetwork.get(this.world);
-		netWrapper.removeNode(this.pos, this.world.provider.getDimension());
+		netWrapper.queueRemoveNode(this.pos, this.world.provider.getDimension());
+		TeleporterResolver.removeState(this.pos, this.world.provider.getDimension());
 	}
 
 	@Override
-	public void update()
+	public boolean hasFastRenderer()
 	{
-		if (this.firstUpdate)
-		{
-			if (!this.world.isRemote)
-			{
-				this.updateNode();
-				this.markDirty();
-			}
-			this.firstUpdate = false;
-		}
+		return true;
 	}
 
+	/**
+	 * the status glow is translucent, so it is drawn with the sorted batch
+	 */
+	@Override
+	public boolean shouldRenderInPass(int pass)
+	{
+		return pass == 1;
+	}
 
+	@Override
+	@SideOnly(Side.CLIENT)
+	public double getMaxRenderDistanceSquared()
+	{
+		return RENDER_DISTANCE * RENDER_DISTANCE;
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	public AxisAlignedBB getRenderBoundingBox()
+	{
+		// a teleporter never moves, so its bounds only need working out once
+		if (this.renderBoundingBox == null) this.renderBoundingBox = new AxisAlignedBB(this.pos, this.pos.add(1, 1, 1));
+		return this.renderBoundingBox;
+	}
+
+	@Override
+	public void onLoad()
+	{
+		// register with the network when placed or when the chunk loads
+		if (!this.world.isRemote) TeleporterDestinationDirectory.invalidate(this);
+		this.updateNode();
+	}
+
+
+	/**
+	 * queues this teleporter's node to be added or updated in the network at the end of the tick.
+	 * the network only marks itself dirty if the node actually changed
+	 */
 	private void updateNode()
 	{
 		if (!this.world.isRemote)
 		{
-			boolean isNewNode = false;
-
 			TeleporterNetwork netWrapper = TeleporterNetwork.get(this.world);
 
 			int tileDim = this.world.provider.getDimension();
+			BlockTeleporter.EnumType tileType = this.getWorld().getBlockState(this.pos).getValue(BlockTeleporter.TYPE);
 
-			TeleporterNode thisNode = netWrapper.getNode(this.pos, tileDim);
-			if (thisNode == null)
-			{
-				thisNode = new TeleporterNode();
-				isNewNode = true;
-			}
-
-			thisNode.pos = this.pos;
-			thisNode.dimension = tileDim;
-			thisNode.type = this.getWorld().getBlockState(this.pos).getValue(BlockTeleporter.TYPE);
-
-			if (isNewNode == true)
-			{
-				netWrapper.addNode(thisNode);
-			}
-
-//			System.out.println("Node updated :: " + thisNode.toString() );
+			netWrapper.queueNode(new TeleporterNode(this.pos, tileDim, tileType, this.owner));
+			TeleporterResolver.updateState(this);
 		}
 	}
 
@@ -0,0 +1,123 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * StandInWorlds stands in for DimensionManager, the server's worlds and the teleporter tile entities in them, so the
+ * network can be walked without a running server.
+ *
+ * each teleporter is a plain object holding its key, power and whether it is obstructed. dimensions are either loaded
+ * or not, and loading one on demand succeeds for the dimensions that allow it, as TeleporterDimensionLoader would.
+ */
+public class StandInWorlds implements TeleporterWorldAccess
+{
+
+	private final Map<Integer, Map<BlockPos, StandInTeleporter>> teleporters = new HashMap<Integer, Map<BlockPos, StandInTeleporter>>();
+	private final Set<Integer> loadedDimensions = new HashSet<Integer>();
+	private final Set<Integer> loadableDimensions = new HashSet<Integer>();
+	private int loads = 0;
+
+
+	public StandInTeleporter add(TeleporterNode node, ItemStack key)
+	{
+		Map<BlockPos, StandInTeleporter> dimensionTeleporters = this.teleporters.get(node.dimension);
+		if (dimensionTeleporters == null)
+		{
+			dimensionTeleporters = new HashMap<BlockPos, StandInTeleporter>();
+			this.teleporters.put(node.dimension, dimensionTeleporters);
+		}
+
+		StandInTeleporter teleporter = new StandInTeleporter(key);
+		dimensionTeleporters.put(node.pos, teleporter);
+		return teleporter;
+	}
+
+	@Nullable
+	public StandInTeleporter get(TeleporterNode node)
+	{
+		Map<BlockPos, StandInTeleporter> dimensionTeleporters = this.teleporters.get(node.dimension);
+		return dimensionTeleporters != null ? dimensionTeleporters.get(node.pos) : null;
+	}
+
+	public void setLoaded(int dimension, boolean loaded)
+	{
+		if (loaded) this.loadedDimensions.add(dimension);
+		else this.loadedDimensions.remove(dimension);
+	}
+
+	public void setLoadable(int dimension, boolean loadable)
+	{
+		if (loadable) this.loadableDimensions.add(dimension);
+		else this.loadableDimensions.remove(dimension);
+	}
+
+	/**
+	 * the number of dimensions loaded on demand by walks
+	 */
+	public int getLoads()
+	{
+		return this.loads;
+	}
+
+
+	@Override
+	public boolean isLoaded(int dimension)
+	{
+		return this.loadedDimensions.contains(dimension);
+	}
+
+	@Override
+	public boolean load(int dimension)
+	{
+		if (!this.loadableDimensions.contains(dimension)) return false;
+		this.loadedDimensions.add(dimension);
+		this.loads++;
+		return true;
+	}
+
+	@Override
+	@Nullable
+	public ItemStack getKey(TeleporterNode node)
+	{
+		StandInTeleporter teleporter = this.get(node);
+		return teleporter != null ? teleporter.key : null;
+	}
+
+	@Override
+	public boolean isObstructed(TeleporterNode node)
+	{
+		StandInTeleporter teleporter = this.get(node);
+		return teleporter != null && teleporter.obstructed;
+	}
+
+	@Override
+	public boolean isPowered(TeleporterNode node)
+	{
+		StandInTeleporter teleporter = this.get(node);
+		return teleporter != null && teleporter.powered;
+	}
+
+
+
+	/**
+	 * stands in for a TileEntityTeleporter, with the blocks above it
+	 */
+	public static class StandInTeleporter
+	{
+		public ItemStack key;
+		public boolean powered = false;
+		public boolean obstructed = false;
+
+		private StandInTeleporter(ItemStack key)
+		{
+			this.key = key;
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package net.dyeo.teleporter.teleport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import net.dyeo.teleporter.block.BlockTeleporter;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * SyntheticNetwork generates a public network of ender teleporters spread over a number of dimensions, each with the
+ * key of one of a number of channels, backed by {@link StandInWorlds}. pads are given their channels at random from a
+ * fixed seed, so the same arguments always build the same network.
+ */
+public class SyntheticNetwork
+{
+
+	// vanilla's items and blocks have to be registered before keys can be made
+	static
+	{
+		Bootstrap.register();
+	}
+
+	private static final int[] DIMENSIONS = { 0, -1, 1, 2, 3, 4, 5, 6 };
+	private static final int ROW_LENGTH = 256;
+	private static final int SPACING = 4;
+
+	public final TeleporterNetwork network = new TeleporterNetwork();
+	public final StandInWorlds worlds = new StandInWorlds();
+	public final List<TeleporterNode> nodes;
+	public final int[] nodeChannels;
+	public final ItemStack[] keys;
+
+
+	public SyntheticNetwork(int nodeCount, int dimensionCount, int channelCount, long seed)
+	{
+		Random random = new Random(seed);
+
+		this.keys = new ItemStack[channelCount];
+		for (int channel = 0; channel < channelCount; ++channel)
+		{
+			this.keys[channel] = createKey(channel);
+		}
+
+		int dimensions = Math.max(1, Math.min(dimensionCount, DIMENSIONS.length));
+		for (int d = 0; d < dimensions; ++d)
+		{
+			this.worlds.setLoaded(DIMENSIONS[d], true);
+			this.worlds.setLoadable(DIMENSIONS[d], true);
+		}
+
+		// the nodes are loaded as a saved network, which keeps them in the order they are made. queueing them would
+		// group them by dimension
+		List<TeleporterNode> nodes = new ArrayList<TeleporterNode>(nodeCount);
+		NBTTagList netNBT = new NBTTagList();
+		this.nodeChannels = new int[nodeCount];
+		for (int i = 0; i < nodeCount; ++i)
+		{
+			BlockPos pos = new BlockPos((i % ROW_LENGTH) * SPACING, 64, (i / ROW_LENGTH) * SPACING);
+			TeleporterNode node = new TeleporterNode(pos, DIMENSIONS[i % dimensions], BlockTeleporter.EnumType.ENDER, null);
+			int channel = random.nextInt(channelCount);
+
+			nodes.add(node);
+			this.nodeChannels[i] = channel;
+			this.worlds.add(node, this.keys[channel]);
+			netNBT.appendTag(node.writeToNBT(new NBTTagCompound()));
+		}
+
+		NBTTagCompound nbt = new NBTTagCompound();
+		nbt.setTag("Network", netNBT);
+		this.network.readFromNBT(nbt);
+		this.network.setWorldAccess(this.worlds);
+
+		// the network reads its own nodes, so the list holds those rather than the ones made here
+		for (int i = 0; i < nodeCount; ++i)
+		{
+			TeleporterNode node = nodes.get(i);
+			nodes.set(i, this.network.getNode(node.pos, node.dimension));
+		}
+		this.nodes = Collections.unmodifiableList(nodes);
+	}
+
+
+	/**
+	 * every key carries its channel in its tag, so no two channels' keys match
+	 */
+	public static ItemStack createKey(int channel)
+	{
+		ItemStack key = new ItemStack(Items.PAPER);
+		NBTTagCompound compound = new NBTTagCompound();
+		compound.setInteger("channel", channel);
+		key.setTagCompound(compound);
+		return key;
+	}
+
+	public ItemStack getKey(int nodeIndex)
+	{
+		return this.keys[this.nodeChannels[nodeIndex]];
+	}
+
+}
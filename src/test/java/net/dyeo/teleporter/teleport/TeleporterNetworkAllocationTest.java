@@ -0,0 +1,98 @@
+package net.dyeo.teleporter.teleport;
+
+import static org.junit.Assert.assertEquals;
+import java.lang.management.ManagementFactory;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * TeleporterNetworkAllocationTest checks that walking the network for a destination doesn't allocate at all once the
+ * walk has warmed up, for keys told apart by their metadata and for written books, which are told apart by author and
+ * title.
+ *
+ * only the walk is measured. getNextNode, onEntityWalk and the transfer in TeleporterUtility need a world, the source's
+ * tile entity and a real entity, which the stand-in worlds don't provide. keys with other nbt tags are compared by
+ * vanilla's NBTTagCompound.equals, which iterates the tags, so they aren't covered either.
+ */
+public class TeleporterNetworkAllocationTest
+{
+
+	private static final int NODES = 2000;
+	private static final int CHANNELS = 16;
+	private static final int WARMUP_WALKS = 50000;
+	private static final int WALKS = 100000;
+
+	private static final int CATEGORY = TeleporterEntityFilter.CATEGORIES.indexOf("creature");
+
+
+	@Test
+	public void plainKeysDontAllocate()
+	{
+		ItemStack[] keys = new ItemStack[CHANNELS];
+		for (int channel = 0; channel < CHANNELS; ++channel)
+		{
+			keys[channel] = new ItemStack(Items.DYE, 1, channel);
+		}
+		this.assertWalksDontAllocate(keys);
+	}
+
+	@Test
+	public void writtenBookKeysDontAllocate()
+	{
+		ItemStack[] keys = new ItemStack[CHANNELS];
+		for (int channel = 0; channel < CHANNELS; ++channel)
+		{
+			ItemStack key = new ItemStack(Items.WRITTEN_BOOK);
+			NBTTagCompound compound = new NBTTagCompound();
+			compound.setString("author", "Builder");
+			compound.setString("title", "Destination " + channel);
+			key.setTagCompound(compound);
+			keys[channel] = key;
+		}
+		this.assertWalksDontAllocate(keys);
+	}
+
+
+	private void assertWalksDontAllocate(ItemStack[] keys)
+	{
+		Assume.assumeTrue(((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).isThreadAllocatedMemorySupported());
+
+		// the three dimensions are the vanilla ones, whose boxed ids are cached
+		SyntheticNetwork synthetic = new SyntheticNetwork(NODES, 3, CHANNELS, 1L);
+		for (int i = 0; i < NODES; ++i)
+		{
+			TeleporterNode node = synthetic.nodes.get(i);
+			StandInWorlds.StandInTeleporter teleporter = synthetic.worlds.get(node);
+			teleporter.key = keys[synthetic.nodeChannels[i]];
+
+			// some pads are passed over, so the walks count blocked and disabled destinations too
+			teleporter.obstructed = (i % 20 == 0);
+			teleporter.powered = (i % 20 == 1);
+		}
+
+		this.walk(synthetic, keys, WARMUP_WALKS);
+
+		// reading the counter can allocate by itself, so what one read costs is taken off the measurement
+		long calibrationBefore = TeleporterNetworkSimulationTest.getAllocatedBytes();
+		long readBytes = TeleporterNetworkSimulationTest.getAllocatedBytes() - calibrationBefore;
+
+		long allocatedBefore = TeleporterNetworkSimulationTest.getAllocatedBytes();
+		this.walk(synthetic, keys, WALKS);
+		long allocatedBytes = TeleporterNetworkSimulationTest.getAllocatedBytes() - allocatedBefore - readBytes;
+
+		assertEquals(0L, allocatedBytes);
+	}
+
+	private void walk(SyntheticNetwork synthetic, ItemStack[] keys, int walks)
+	{
+		for (int walk = 0; walk < walks; ++walk)
+		{
+			int index = walk % NODES;
+			synthetic.network.findDestination(synthetic.nodes.get(index), keys[synthetic.nodeChannels[index]], CATEGORY, null);
+		}
+	}
+
+}
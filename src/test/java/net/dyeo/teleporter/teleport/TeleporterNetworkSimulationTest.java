@@ -0,0 +1,181 @@
+package net.dyeo.teleporter.teleport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * TeleporterNetworkSimulationTest drives simulated entities over synthetic networks tick by tick, the way entities
+ * walking onto pads drive the network on a server, and reports throughput, scan lengths and allocation rates.
+ *
+ * each entity stands on a pad, walks the network for a destination when it is idle, moves to the destination it finds
+ * and then waits a few ticks before stepping on again, as the teleport handler's cooldown would have it. every
+ * destination found is checked against the stand-in worlds, and every walk that found nothing is checked against all
+ * of the source's network.
+ */
+public class TeleporterNetworkSimulationTest
+{
+
+	private static final int TICKS = 200;
+	private static final int ENTITIES = 500;
+	private static final int COOLDOWN_TICKS = 20;
+	private static final int DIMENSIONS = 3;
+
+	// a share of the pads are powered or obstructed, so walks have to pass over them
+	private static final double DISABLED_SHARE = 0.05D;
+	private static final double BLOCKED_SHARE = 0.05D;
+
+	private static final int CATEGORY = TeleporterEntityFilter.CATEGORIES.indexOf("creature");
+
+
+	@Test
+	public void smallNetworkWithFewChannels()
+	{
+		this.simulate(1000, 16);
+	}
+
+	@Test
+	public void smallNetworkWithManyChannels()
+	{
+		this.simulate(1000, 256);
+	}
+
+	@Test
+	public void largeNetworkWithFewChannels()
+	{
+		this.simulate(10000, 16);
+	}
+
+	@Test
+	public void largeNetworkWithManyChannels()
+	{
+		this.simulate(10000, 256);
+	}
+
+
+	private void simulate(int nodeCount, int channelCount)
+	{
+		SyntheticNetwork synthetic = new SyntheticNetwork(nodeCount, DIMENSIONS, channelCount, nodeCount * 31L + channelCount);
+		Random random = new Random(nodeCount ^ channelCount);
+
+		for (int i = 0; i < nodeCount; ++i)
+		{
+			StandInWorlds.StandInTeleporter teleporter = synthetic.worlds.get(synthetic.nodes.get(i));
+			double roll = random.nextDouble();
+			teleporter.powered = (roll < DISABLED_SHARE);
+			teleporter.obstructed = (roll >= DISABLED_SHARE && roll < DISABLED_SHARE + BLOCKED_SHARE);
+		}
+
+		Map<TeleporterNode, Integer> nodeIndices = new HashMap<TeleporterNode, Integer>();
+		for (int i = 0; i < nodeCount; ++i)
+		{
+			nodeIndices.put(synthetic.nodes.get(i), i);
+		}
+
+		int[] positions = new int[ENTITIES];
+		int[] cooldowns = new int[ENTITIES];
+		for (int e = 0; e < ENTITIES; ++e)
+		{
+			positions[e] = random.nextInt(nodeCount);
+			cooldowns[e] = random.nextInt(COOLDOWN_TICKS);
+		}
+
+		long walks = 0;
+		long found = 0;
+		long scanned = 0;
+		int longestScan = 0;
+		long walkNanos = 0;
+		long allocatedBytes = 0;
+
+		for (int tick = 0; tick < TICKS; ++tick)
+		{
+			for (int e = 0; e < ENTITIES; ++e)
+			{
+				if (cooldowns[e] > 0)
+				{
+					cooldowns[e]--;
+					continue;
+				}
+
+				TeleporterNode sourceNode = synthetic.nodes.get(positions[e]);
+				int channel = synthetic.nodeChannels[positions[e]];
+
+				long allocatedBefore = getAllocatedBytes();
+				long startTime = System.nanoTime();
+				TeleporterNode destinationNode = synthetic.network.findDestination(sourceNode, synthetic.keys[channel], CATEGORY, null);
+				walkNanos += System.nanoTime() - startTime;
+				allocatedBytes += getAllocatedBytes() - allocatedBefore;
+
+				int scanLength = synthetic.network.getLastScan().getLength();
+				assertTrue(scanLength < nodeCount);
+				scanned += scanLength;
+				longestScan = Math.max(longestScan, scanLength);
+				walks++;
+
+				if (destinationNode != null)
+				{
+					int destinationIndex = nodeIndices.get(destinationNode);
+					StandInWorlds.StandInTeleporter destination = synthetic.worlds.get(destinationNode);
+					assertNotSame(sourceNode, destinationNode);
+					assertEquals(channel, synthetic.nodeChannels[destinationIndex]);
+					assertFalse(destination.powered || destination.obstructed);
+
+					positions[e] = destinationIndex;
+					found++;
+				}
+				else
+				{
+					assertFalse(hasDestination(synthetic, positions[e]));
+				}
+				cooldowns[e] = COOLDOWN_TICKS;
+			}
+		}
+
+		assertEquals(0, synthetic.worlds.getLoads());
+
+		double seconds = walkNanos / 1.0e9D;
+		System.out.println("simulation nodes=" + nodeCount + " channels=" + channelCount + " dimensions=" + DIMENSIONS + " entities=" + ENTITIES + " ticks=" + TICKS);
+		System.out.println("  walks=" + walks + " found=" + found);
+		System.out.println("  walksPerSecond=" + format(walks / seconds));
+		System.out.println("  meanScanLength=" + format(walks > 0 ? (double)scanned / walks : 0.0D) + " maxScanLength=" + longestScan);
+		System.out.println("  meanWalkMicros=" + format(walks > 0 ? walkNanos / 1000.0D / walks : 0.0D));
+		System.out.println("  allocatedBytesPerWalk=" + format(walks > 0 ? (double)allocatedBytes / walks : 0.0D));
+	}
+
+	/**
+	 * whether any other pad on the source's channel can be teleported to, checked without walking the network
+	 */
+	private static boolean hasDestination(SyntheticNetwork synthetic, int sourceIndex)
+	{
+		for (int i = 0; i < synthetic.nodes.size(); ++i)
+		{
+			StandInWorlds.StandInTeleporter teleporter = synthetic.worlds.get(synthetic.nodes.get(i));
+			if (i != sourceIndex && synthetic.nodeChannels[i] == synthetic.nodeChannels[sourceIndex] && !teleporter.powered && !teleporter.obstructed)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * the bytes allocated by this thread so far, as counted by the jvm
+	 */
+	static long getAllocatedBytes()
+	{
+		return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static String format(double value)
+	{
+		return String.format(Locale.ROOT, "%.2f", value);
+	}
+
+}